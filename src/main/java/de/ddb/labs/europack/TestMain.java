@@ -21,7 +21,6 @@ import de.ddb.labs.europack.source.ddbapi.CacheManager;
 import de.ddb.labs.europack.source.ddbapi.DDBIdGetter;
 import de.ddb.labs.europack.sink.SinkInterface;
 import de.ddb.labs.europack.sink.ZipFileSink;
-import java.awt.event.ActionEvent;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.StringWriter;
@@ -30,7 +29,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
-import javax.swing.Timer;
 import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
@@ -91,20 +89,16 @@ public class TestMain {
         // final DDBIdGetter sd = new DDBIdGetter("https://api.deutsche-digitale-bibliothek.de", "provider_id:WOGJQYZO42L7ZIZQHKFIGHG3D6XQJGYW AND type_fct:mediatype_003", ehg, "");
         final DDBIdGetter sd = new DDBIdGetter("https://api-q1.deutsche-digitale-bibliothek.de", "dataset_id:34753197757685558nKKn", ehg, "");
 
-        final Timer t = new Timer(10000, null);
-        t.addActionListener((ActionEvent e) -> {
-            LOG.info("DDBIdGetter: {}, EDMDownloader: {}, EuropackFilterProcessor: {}", sd.isDone(), ehg.isDone(), epfp.isDone());
-            if (sd.isDone() && ehg.isDone() && epfp.isDone()) {
-                sd.dispose();
-                ehg.dispose();
-                epfp.dispose();
-                CacheManager.getInstance().destroy();
-                t.stop();
-            }
-        });
-        t.start();
-
         sd.run();
+        // wait until every document taken has been processed or has failed
+        if (!epfp.getFlowControl().awaitIdle(() -> sd.isCanceled() || ehg.isCanceled() || epfp.isCanceled())) {
+            LOG.error("Run did not complete, {} record(s) not processed", epfp.getFlowControl().getRecords());
+        }
+        LOG.info("DDBIdGetter: {}, EDMDownloader: {}, EuropackFilterProcessor: {}", sd.isDone(), ehg.isDone(), epfp.isDone());
+        sd.dispose();
+        ehg.dispose();
+        epfp.dispose();
+        CacheManager.getInstance().destroy();
 
         //ehg.close();
     }
@@ -19,6 +19,7 @@ import de.ddb.labs.europack.processor.EdmNamespaces;
 import de.ddb.labs.europack.processor.EuropackDoc;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.events.StartElement;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
@@ -30,10 +31,12 @@ import org.w3c.dom.NodeList;
  *
  * @author Michael Büchner <m.buechner@dnb.de>
  */
-public class CropRdfFilter implements FilterInterface {
+public class CropRdfFilter implements StreamFilterInterface {
 
     private static final Logger LOG = LoggerFactory.getLogger(CropRdfFilter.class);
     private DocumentBuilder builder;
+    // streaming: depth of rdf:RDF while inside, 0 before and -1 after it
+    private int rdfDepth;
 
     public CropRdfFilter() {
     }
@@ -99,6 +102,55 @@ public class CropRdfFilter implements FilterInterface {
         }
     }
 
+    /**
+     * Resets the state for the next document
+     *
+     * @param ed
+     */
+    @Override
+    public void startDocument(EuropackDoc ed) {
+        rdfDepth = 0;
+    }
+
+    /**
+     * Streaming version of {@link #filter(EuropackDoc)}: everything before
+     * the first rdf:RDF element is unwrapped, everything after it dropped.
+     *
+     * @param path
+     * @param e
+     * @return
+     */
+    @Override
+    public Action startElement(StreamPath path, StartElement e) {
+        if (rdfDepth < 0) {
+            return Action.DROP;
+        }
+        if (rdfDepth > 0) {
+            return Action.KEEP;
+        }
+        if (StreamPath.is(e.getName(), "rdf", "RDF")) {
+            rdfDepth = path.depth();
+            return Action.KEEP;
+        }
+        return Action.UNWRAP;
+    }
+
+    @Override
+    public void endElement(StreamPath path) {
+        if (rdfDepth > 0 && path.depth() == rdfDepth) {
+            rdfDepth = -1;
+        }
+    }
+
+    @Override
+    public StreamPass endDocument(EuropackDoc ed) {
+        if (rdfDepth == 0) {
+            LOG.warn("{}: There's no rdf:RDF element in this document.", ed.getId());
+            ed.setStatus(EuropackDoc.Status.INVALID_FILTER_FAILED);
+        }
+        return null;
+    }
+
     /**
      * Description of this Filter
      *
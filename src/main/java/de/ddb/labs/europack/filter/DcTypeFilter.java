@@ -17,6 +17,7 @@ package de.ddb.labs.europack.filter;
 
 import de.ddb.labs.europack.processor.EdmNamespaces;
 import de.ddb.labs.europack.processor.EuropackDoc;
+import javax.xml.stream.events.StartElement;
 import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpression;
 import javax.xml.xpath.XPathExpressionException;
@@ -29,24 +30,25 @@ import org.w3c.dom.NodeList;
  *
  * @author Michael Büchner <m.buechner@dnb.de>
  */
-public class DcTypeFilter implements FilterInterface {
+public class DcTypeFilter implements StreamFilterInterface {
 
     // private final static Logger LOG = LoggerFactory.getLogger(DcTypeFilter.class);
     // select <dc:type rdf:resource="http://ddb.vocnet.org/medientyp/mt002" />
     private final static String EX0 = "//*[namespace-uri()='" + EdmNamespaces.getNsUri().get("edm") + "' and local-name()='WebResource']\n"
             + "/*[namespace-uri()='" + EdmNamespaces.getNsUri().get("dc") + "' and local-name()='type']\n"
             + "[@*[namespace-uri()='" + EdmNamespaces.getNsUri().get("rdf") + "' and local-name()='resource']]";
-    private XPathFactory factory;
+    private XPathExpression expr0;
 
     public DcTypeFilter() {
     }
 
     @Override
     public void init() throws Exception {
-        factory = XPathFactory.newInstance();
+        final XPathFactory factory = XPathFactory.newInstance();
         if (factory == null) {
             throw new IllegalStateException("XPathFactory is null. This filter won't work.");
         }
+        expr0 = factory.newXPath().compile(EX0);
         // try {
         //  System.setProperty("javax.xml.xpath.XPathFactory:" + NamespaceConstant.OBJECT_MODEL_SAXON, "net.sf.saxon.xpath.XPathFactoryImpl");
         //  factory = XPathFactory.newInstance();
@@ -66,7 +68,6 @@ public class DcTypeFilter implements FilterInterface {
     public void filter(EuropackDoc ed) throws XPathExpressionException {
         final Document doc = ed.getDoc();
 
-        final XPathExpression expr0 = factory.newXPath().compile(EX0);
         final Object result0 = expr0.evaluate(doc, XPathConstants.NODESET);
         final NodeList nodeList0 = (NodeList) result0;
         if (nodeList0 == null || nodeList0.getLength() < 1) {
@@ -74,26 +75,37 @@ public class DcTypeFilter implements FilterInterface {
         }
         for (int i = 0; i < nodeList0.getLength(); ++i) {
             final Node n0 = nodeList0.item(i);
-            final String uri = n0.getAttributes().getNamedItemNS(EdmNamespaces.getNsUri().get("rdf"), "resource").getTextContent();
-            n0.getParentNode().removeChild(n0);
-
-            // select <skos:Concept rdf:about="http://ddb.vocnet.org/medientyp/mt002" ...>
-            final String ex1 = "//*[namespace-uri()='" + EdmNamespaces.getNsUri().get("skos") + "' \n"
-                    + "and local-name()='Concept' \n"
-                    + "and @*[namespace-uri()='" + EdmNamespaces.getNsUri().get("rdf") + "' and local-name()='about'] = '" + uri + "']";
-
-            final XPathExpression expr1 = factory.newXPath().compile(ex1);
-            final Object result1 = expr1.evaluate(doc, XPathConstants.NODESET);
-            final NodeList nodeList1 = (NodeList) result1;
-            for (int j = 0; j < nodeList1.getLength(); ++j) {
-                final Node n1 = nodeList1.item(j);
-                n1.getParentNode().removeChild(n1);
-            }
+            ed.getIndex().removeReference(n0);
         }
 
         ed.setDoc(doc);
     }
 
+    /**
+     * Streaming version of {@link #filter(EuropackDoc)}
+     *
+     * @param path
+     * @param e
+     * @return
+     */
+    @Override
+    public Action startElement(StreamPath path, StartElement e) {
+        return StreamPath.is(e.getName(), "dc", "type")
+                && StreamPath.is(path.parent(), "edm", "WebResource")
+                && StreamPath.attribute(e, "rdf", "resource") != null
+                ? Action.DROP : Action.KEEP;
+    }
+
+    /**
+     * The skos:Concept of a dropped dc:type goes, too
+     *
+     * @return
+     */
+    @Override
+    public boolean isCascading() {
+        return true;
+    }
+
     /**
      * Description of this Filter
      *
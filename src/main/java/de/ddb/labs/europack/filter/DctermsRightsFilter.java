@@ -16,17 +16,11 @@
 package de.ddb.labs.europack.filter;
 
 import de.ddb.labs.europack.processor.EuropackDoc;
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.nio.charset.Charset;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerConfigurationException;
-import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMResult;
 import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamSource;
 import org.w3c.dom.Document;
 
 /**
@@ -42,11 +36,7 @@ public class DctermsRightsFilter implements FilterInterface {
 
     @Override
     public void init() throws IOException, TransformerConfigurationException {
-        final String xsltFileName = "filters/" + DctermsRightsFilter.class.getSimpleName() + ".xsl";
-        final InputStream is = this.getClass().getClassLoader().getResourceAsStream(xsltFileName);
-        final InputStreamReader isr = new InputStreamReader(is, Charset.forName("UTF-8"));
-        final BufferedReader br = new BufferedReader(isr);
-        transformer = TransformerFactory.newInstance().newTransformer(new StreamSource(br));
+        transformer = XslTemplatesCache.getInstance().newTransformer(DctermsRightsFilter.class.getSimpleName());
     }
 
     /**
@@ -17,6 +17,7 @@ package de.ddb.labs.europack.filter;
 
 import de.ddb.labs.europack.processor.EdmNamespaces;
 import de.ddb.labs.europack.processor.EuropackDoc;
+import javax.xml.stream.events.StartElement;
 import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpression;
 import javax.xml.xpath.XPathExpressionException;
@@ -29,23 +30,24 @@ import org.w3c.dom.NodeList;
  *
  * @author Michael Büchner <m.buechner@dnb.de>
  */
-public class DctermsSubjectFilter implements FilterInterface {
+public class DctermsSubjectFilter implements StreamFilterInterface {
 
     // private final static Logger LOG = LoggerFactory.getLogger(DctermsSubjectFilter.class);
     // select <dcterms:subject ns4:resource="PL35QIAPCMLUV7AJYKP2HCK4IUADKTKD" />
     private final static String EX0 = "//*[namespace-uri()='" + EdmNamespaces.getNsUri().get("edm") + "' and local-name()='ProvidedCHO']\n"
             + "/*[namespace-uri()='" + EdmNamespaces.getNsUri().get("dcterms") + "' and local-name()='subject']";
-    private XPathFactory factory;
+    private XPathExpression expr0;
 
     public DctermsSubjectFilter() {
     }
 
     @Override
-    public void init() {
-        factory = XPathFactory.newInstance();
+    public void init() throws XPathExpressionException {
+        final XPathFactory factory = XPathFactory.newInstance();
         if (factory == null) {
             throw new IllegalStateException("XPathFactory is null. This filter won't work.");
         }
+        expr0 = factory.newXPath().compile(EX0);
     }
 
     /**
@@ -59,7 +61,6 @@ public class DctermsSubjectFilter implements FilterInterface {
     public void filter(EuropackDoc ed) throws XPathExpressionException {
         final Document doc = ed.getDoc();
 
-        final XPathExpression expr0 = factory.newXPath().compile(EX0);
         final Object result0 = expr0.evaluate(doc, XPathConstants.NODESET);
         final NodeList nodeList0 = (NodeList) result0;
         if (nodeList0 == null || nodeList0.getLength() < 1) {
@@ -67,27 +68,36 @@ public class DctermsSubjectFilter implements FilterInterface {
         }
         for (int i = 0; i < nodeList0.getLength(); ++i) {
             final Node n0 = nodeList0.item(i);
-            final String uri = n0.getAttributes().getNamedItemNS(EdmNamespaces.getNsUri().get("rdf"), "resource").getTextContent();
-            n0.getParentNode().removeChild(n0);
-
-            // select <skos:Concept ns4:about="MQFVGIECAADKGVWAHMCKP7OZ3TIJCPAD" xmlns:dcterms="http://purl.org/dc/terms/" 
-            // xmlns:edm="http://www.europeana.eu/schemas/edm/" xmlns:foaf="http://xmlns.com/foaf/0.1/" 
-            // xmlns:ore="http://www.openarchives.org/ore/terms/" xmlns:skos="http://www.w3.org/2004/02/skos/core#"> ...
-            final String ex1 = "//*[namespace-uri()='" + EdmNamespaces.getNsUri().get("skos") + "' and local-name()='Concept']\n"
-                    + "[@*[namespace-uri()='" + EdmNamespaces.getNsUri().get("rdf") + "' and local-name()='about'] = '" + uri + "']";
-
-            final XPathExpression expr1 = factory.newXPath().compile(ex1);
-            final Object result1 = expr1.evaluate(doc, XPathConstants.NODESET);
-            final NodeList nodeList1 = (NodeList) result1;
-            for (int j = 0; j < nodeList1.getLength(); ++j) {
-                final Node n1 = nodeList1.item(j);
-                n1.getParentNode().removeChild(n1);
-            }
+            ed.getIndex().removeReference(n0);
         }
 
         ed.setDoc(doc);
     }
 
+    /**
+     * Streaming version of {@link #filter(EuropackDoc)}
+     *
+     * @param path
+     * @param e
+     * @return
+     */
+    @Override
+    public Action startElement(StreamPath path, StartElement e) {
+        return StreamPath.is(e.getName(), "dcterms", "subject")
+                && StreamPath.is(path.parent(), "edm", "ProvidedCHO")
+                ? Action.DROP : Action.KEEP;
+    }
+
+    /**
+     * The skos:Concept of a dropped dcterms:subject goes, too
+     *
+     * @return
+     */
+    @Override
+    public boolean isCascading() {
+        return true;
+    }
+
     /**
      * Description of this Filter
      *
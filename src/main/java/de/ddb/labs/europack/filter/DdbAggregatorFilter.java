@@ -17,6 +17,7 @@ package de.ddb.labs.europack.filter;
 
 import de.ddb.labs.europack.processor.EdmNamespaces;
 import de.ddb.labs.europack.processor.EuropackDoc;
+import javax.xml.stream.events.StartElement;
 import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpression;
 import javax.xml.xpath.XPathExpressionException;
@@ -29,23 +30,24 @@ import org.w3c.dom.NodeList;
  *
  * @author Michael Büchner <m.buechner@dnb.de>
  */
-public class DdbAggregatorFilter implements FilterInterface {
+public class DdbAggregatorFilter implements StreamFilterInterface {
 
     // private final static Logger LOG = LoggerFactory.getLogger(DdbAggregatorFilter.class);
     // select <ddb:aggregator ns6:resource="http://www.deutsche-digitale-bibliothek.de/organization/X6VKVOM5HGHDIQX36BI3ZKWROZTN74UX" />
     private final static String EX0 = "//*[namespace-uri()='" + EdmNamespaces.getNsUri().get("ore") + "' and local-name()='Aggregation']\n"
             + "/*[namespace-uri()='" + EdmNamespaces.getNsUri().get("ddb") + "' and local-name()='aggregator']";
-    private XPathFactory factory;
+    private XPathExpression expr0;
 
     public DdbAggregatorFilter() {
     }
 
     @Override
     public void init() throws Exception {
-        factory = XPathFactory.newInstance();
+        final XPathFactory factory = XPathFactory.newInstance();
         if (factory == null) {
             throw new IllegalStateException("XPathFactory is null. This filter won't work.");
         }
+        expr0 = factory.newXPath().compile(EX0);
     }
 
     /**
@@ -59,7 +61,6 @@ public class DdbAggregatorFilter implements FilterInterface {
     public void filter(EuropackDoc ed) throws XPathExpressionException {
         final Document doc = ed.getDoc();
 
-        final XPathExpression expr0 = factory.newXPath().compile(EX0);
         final Object result0 = expr0.evaluate(doc, XPathConstants.NODESET);
         final NodeList nodeList0 = (NodeList) result0;
         if (nodeList0 == null || nodeList0.getLength() < 1) {
@@ -67,25 +68,36 @@ public class DdbAggregatorFilter implements FilterInterface {
         }
         for (int i = 0; i < nodeList0.getLength(); ++i) {
             final Node n0 = nodeList0.item(i);
-            final String uri = n0.getAttributes().getNamedItemNS(EdmNamespaces.getNsUri().get("rdf"), "resource").getTextContent();
-            n0.getParentNode().removeChild(n0);
-
-            // select <edm:Agent ns6:about="http://www.deutsche-digitale-bibliothek.de/organization/X6VKVOM5HGHDIQX36BI3ZKWROZTN74UX"> ...
-            final String ex1 = "//*[namespace-uri()='" + EdmNamespaces.getNsUri().get("edm") + "' and local-name()='Agent']"
-                    + "[@*[namespace-uri()='" + EdmNamespaces.getNsUri().get("rdf") + "' and local-name()='about'] ='" + uri + "']";
-
-            final XPathExpression expr1 = factory.newXPath().compile(ex1);
-            final Object result1 = expr1.evaluate(doc, XPathConstants.NODESET);
-            final NodeList nodeList1 = (NodeList) result1;
-            for (int j = 0; j < nodeList1.getLength(); ++j) {
-                final Node n1 = nodeList1.item(j);
-                n1.getParentNode().removeChild(n1);
-            }
+            ed.getIndex().removeReference(n0);
         }
 
         ed.setDoc(doc);
     }
 
+    /**
+     * Streaming version of {@link #filter(EuropackDoc)}
+     *
+     * @param path
+     * @param e
+     * @return
+     */
+    @Override
+    public Action startElement(StreamPath path, StartElement e) {
+        return StreamPath.is(e.getName(), "ddb", "aggregator")
+                && StreamPath.is(path.parent(), "ore", "Aggregation")
+                ? Action.DROP : Action.KEEP;
+    }
+
+    /**
+     * The edm:Agent of a dropped ddb:aggregator goes, too
+     *
+     * @return
+     */
+    @Override
+    public boolean isCascading() {
+        return true;
+    }
+
     /**
      * Description of this Filter
      *
@@ -21,7 +21,9 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.regex.Pattern;
+import javax.xml.stream.events.StartElement;
 import javax.xml.parsers.ParserConfigurationException;
+import org.w3c.dom.Document;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
@@ -30,7 +32,10 @@ import org.xml.sax.SAXException;
  *
  * @author Michael Büchner <m.buechner@dnb.de>
  */
-public class EdmDataProviderFilter implements FilterInterface {
+public class EdmDataProviderFilter implements StreamFilterInterface {
+
+    // streaming: number of ore:Aggregation seen, only the first one is filtered
+    private int count;
 
     public EdmDataProviderFilter() {
     }
@@ -54,7 +59,8 @@ public class EdmDataProviderFilter implements FilterInterface {
      */
     @Override
     public void filter(EuropackDoc ed) throws IOException, ParserConfigurationException, SAXException {
-        final NodeList nl = ed.getDoc().getElementsByTagNameNS(EdmNamespaces.getNsUri().get("ore"), "Aggregation");
+        final Document doc = ed.getDoc();
+        final NodeList nl = doc.getElementsByTagNameNS(EdmNamespaces.getNsUri().get("ore"), "Aggregation");
         if (nl != null && nl.getLength() > 0) {
             final List<Node> l = getElementsByName(nl.item(0), EdmNamespaces.getNsUri().get("edm"), "dataProvider", false);
             for (Node n : l) {
@@ -62,55 +68,13 @@ public class EdmDataProviderFilter implements FilterInterface {
                 if (attribute != null) {
                     final String s = attribute.getTextContent();
                     if (s.startsWith("http") || Pattern.matches("[0-9A-Z]{32}", s)) {
-                        n.getParentNode().removeChild(n);
-                        removeEdmAgent(ed.getDoc().getElementsByTagNameNS(EdmNamespaces.getNsUri().get("rdf"), "RDF").item(0), s, true);
+                        ed.getIndex().removeReference(n);
                     }
                 }
 
             }
         }
-    }
-
-    /**
-     * Gets all edm:Agent in a node and it's children with an specific URI in
-     * rdf:about and removes them.
-     *
-     * @param node
-     * @param uri Identifier in rdf:about
-     * @param withPartOf If True all edm:Agent linked in dcterms:isPartOf will
-     * be removes as well
-     */
-    private void removeEdmAgent(Node node, String uri, boolean withPartOf) {
-        final List<Node> agentList = getElementsByNameAndAttribute(
-                node,
-                EdmNamespaces.getNsUri().get("edm"),
-                "Agent",
-                EdmNamespaces.getNsUri().get("rdf"),
-                "about",
-                uri,
-                false);
-
-        for (Node an : agentList) {
-            if (withPartOf) {
-                // get ifPartOf
-                final NodeList nl = an.getChildNodes();
-                for (int i = 0; i < nl.getLength(); ++i) {
-                    final Node n = nl.item(i);
-                    if (n != null && n.getNodeType() == Node.ELEMENT_NODE && n.getNamespaceURI().equals(EdmNamespaces.getNsUri().get("dcterms")) && n.getLocalName().equals("isPartOf")) {
-                        final Node rn = n.getAttributes().getNamedItemNS(EdmNamespaces.getNsUri().get("rdf"), "resource");
-                        if (rn != null && !rn.getTextContent().isEmpty() && !rn.getTextContent().equals(uri)) {
-                            removeEdmAgent(node, rn.getTextContent(), withPartOf);
-                        }
-                    } else if (n != null && n.getNodeType() == Node.ELEMENT_NODE && n.getNamespaceURI().equals(EdmNamespaces.getNsUri().get("rdf")) && n.getLocalName().equals("type")) {
-                        final Node rn = n.getAttributes().getNamedItemNS(EdmNamespaces.getNsUri().get("rdf"), "resource");
-                        if (rn != null && !rn.getTextContent().isEmpty()) {
-                            removeElementsByNameAndAttribute(node, EdmNamespaces.getNsUri().get("skos"), "Concept", EdmNamespaces.getNsUri().get("rdf"), "about", rn.getTextContent(), false);
-                        }
-                    }
-                }
-            }
-            an.getParentNode().removeChild(an);
-        }
+        ed.setDoc(doc);
     }
 
     /**
@@ -142,57 +106,46 @@ public class EdmDataProviderFilter implements FilterInterface {
     }
 
     /**
+     * Resets the state for the next document
      *
+     * @param ed
+     */
+    @Override
+    public void startDocument(EuropackDoc ed) {
+        count = 0;
+    }
+
+    /**
+     * Streaming version of {@link #filter(EuropackDoc)}
      *
-     * @param node
-     * @param ns
-     * @param elementName
-     * @param attrNS
-     * @param attrName
-     * @param attriValue
-     * @param rekursiv
+     * @param path
+     * @param e
      * @return
      */
-    protected static List<Node> getElementsByNameAndAttribute(Node node, String ns, String elementName, String attrNS, String attrName, String attriValue, boolean rekursiv) {
-        final NodeList nodeList = node.getChildNodes();
-        final List<Node> newList = new ArrayList<>();
-        for (int i = 0; i < nodeList.getLength(); i++) {
-            final Node n = nodeList.item(i);
-            if (n == null || n.getNodeType() != Node.ELEMENT_NODE) {
-                continue;
-            } else if (n.hasChildNodes() && rekursiv) {
-                newList.addAll(getElementsByName(n, ns, elementName, rekursiv));
-            }
-
-            if (n.getNamespaceURI().equals(ns) && n.getLocalName().equals(elementName)) {
-                final Node a = n.getAttributes().getNamedItemNS(attrNS, attrName);
-                if (a != null && (attriValue == null || a.getTextContent().equals(attriValue))) {
-                    // found element
-                    newList.add(n);
-                }
-            }
+    @Override
+    public Action startElement(StreamPath path, StartElement e) {
+        if (StreamPath.is(e.getName(), "ore", "Aggregation")) {
+            ++count;
+            return Action.KEEP;
         }
-        return newList;
+        if (!StreamPath.is(e.getName(), "edm", "dataProvider")
+                || !StreamPath.is(path.parent(), "ore", "Aggregation") || count != 1) {
+            return Action.KEEP;
+        }
+        final String s = StreamPath.attribute(e, "rdf", "resource");
+        return s != null && (s.startsWith("http") || Pattern.matches("[0-9A-Z]{32}", s))
+                ? Action.DROP : Action.KEEP;
     }
 
     /**
+     * The edm:Agent of a dropped edm:dataProvider goes with its isPartOf
+     * hierarchy and concepts, unless they are still referenced
      *
-     *
-     * @param node
-     * @param ns
-     * @param elementName
-     * @param attrNS
-     * @param attrName
-     * @param attriValue
-     * @param rekursiv
+     * @return
      */
-    protected static void removeElementsByNameAndAttribute(Node node, String ns, String elementName, String attrNS, String attrName, String attriValue, boolean rekursiv) {
-        List<Node> list = getElementsByNameAndAttribute(node, ns, elementName, attrNS, attrName, attriValue, rekursiv);
-        if (list != null) {
-            for (Node n : list) {
-                n.getParentNode().removeChild(n);
-            }
-        }
+    @Override
+    public boolean isCascading() {
+        return true;
     }
 
     /**
@@ -19,6 +19,7 @@ import de.ddb.labs.europack.processor.EdmNamespaces;
 import de.ddb.labs.europack.processor.EuropackDoc;
 import java.util.ArrayList;
 import java.util.List;
+import javax.xml.stream.events.StartElement;
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
@@ -27,10 +28,13 @@ import org.w3c.dom.NodeList;
  *
  * @author Michael Büchner <m.buechner@dnb.de>
  */
-public class EdmHasMetFilter implements FilterInterface {
+public class EdmHasMetFilter implements StreamFilterInterface {
 
     // private static final Logger LOG = LoggerFactory.getLogger(EdmHasMetFilter.class);
 
+    // streaming: number of edm:ProvidedCHO seen, only the first one is filtered
+    private int count;
+
     public EdmHasMetFilter() {
     }
 
@@ -49,152 +53,18 @@ public class EdmHasMetFilter implements FilterInterface {
      */
     @Override
     public void filter(EuropackDoc ed) {
-        final NodeList nl = ed.getDoc().getElementsByTagNameNS(EdmNamespaces.getNsUri().get("edm"), "ProvidedCHO");
+        final Document doc = ed.getDoc();
+        final NodeList nl = doc.getElementsByTagNameNS(EdmNamespaces.getNsUri().get("edm"), "ProvidedCHO");
         if (nl != null && nl.getLength() > 0) {
             final List<Node> l = getElementsByName(nl.item(0), EdmNamespaces.getNsUri().get("edm"), "hasMet", false);
             for (Node n : l) {
                 final Node attribute = n.getAttributes().getNamedItemNS(EdmNamespaces.getNsUri().get("rdf"), "resource");
                 if (attribute != null) {
-                    final String s = attribute.getTextContent();
-                    n.getParentNode().removeChild(n);
-                    removeEdmEvent(ed.getDoc(), s);
-                }
-            }
-        }
-    }
-
-    /**
-     * Removes a specific edm:Event
-     *
-     * @param doc
-     * @param uri
-     */
-    private static void removeEdmEvent(Document doc, String uri) {
-        final Node node = doc.getElementsByTagNameNS(EdmNamespaces.getNsUri().get("rdf"), "RDF").item(0);
-        final List<Node> agentList = getElementsByNameAndAttribute(
-                node,
-                EdmNamespaces.getNsUri().get("edm"),
-                "Event",
-                EdmNamespaces.getNsUri().get("rdf"),
-                "about",
-                uri,
-                false);
-
-        for (Node an : agentList) {
-            an.getParentNode().removeChild(an);
-            final NodeList nl = an.getChildNodes();
-            for (int i = 0; i < nl.getLength(); ++i) {
-                final Node n = nl.item(i);
-                if (n == null || n.getNodeType() != Node.ELEMENT_NODE || n.getAttributes() == null) {
-                    continue;
-                }
-                final Node a = n.getAttributes().getNamedItemNS(EdmNamespaces.getNsUri().get("rdf"), "resource");
-                if (a == null) {
-                    continue;
-                }
-
-                // if (n.getNamespaceURI().equals(EdmNamespaces.getNsUri().get("edm")) && n.getLocalName().equals("hasType")) {
-                //    // remove hasType: no class inside EDM
-                // }
-                if (n.getNamespaceURI().equals(EdmNamespaces.getNsUri().get("crm")) && n.getLocalName().equals("P11_had_participant")) {
-                    removeAgent(doc, a.getTextContent(), uri);
-                }
-
-                if (n.getNamespaceURI().equals(EdmNamespaces.getNsUri().get("edm")) && n.getLocalName().equals("happenedAt")) {
-                    removePlace(doc, a.getTextContent());
-                }
-
-                if (n.getNamespaceURI().equals(EdmNamespaces.getNsUri().get("edm")) && n.getLocalName().equals("occuredAt")) {
-                    removeTimeSpan(doc, a.getTextContent());
-                }
-            }
-        }
-    }
-
-    /**
-     * Removes a specific edm:Agent
-     *
-     * @param doc
-     * @param aboutUri
-     * @param wasPresentAtUri
-     */
-    private static void removeAgent(Document doc, String aboutUri, String wasPresentAtUri) {
-        final NodeList nl = doc.getElementsByTagNameNS(EdmNamespaces.getNsUri().get("edm"), "Agent");
-        for (int i = 0; i < nl.getLength(); ++i) {
-            final Node n = nl.item(i);
-
-            if (n == null || n.getNodeType() != Node.ELEMENT_NODE) {
-                continue;
-            }
-            final Node a = n.getAttributes().getNamedItemNS(EdmNamespaces.getNsUri().get("rdf"), "about");
-            if (a == null || !a.getTextContent().equals(aboutUri)) {
-                continue;
-            }
-
-            final NodeList nlc = n.getChildNodes();
-            for (int j = 0; j < nlc.getLength(); ++j) {
-                final Node nc = nlc.item(j);
-
-                if (nc == null
-                        || nc.getNodeType() != Node.ELEMENT_NODE
-                        || !nc.getNamespaceURI().equals(EdmNamespaces.getNsUri().get("edm"))
-                        || !nc.getLocalName().equals("wasPresentAt")) {
-                    continue;
-                }
-                final Node nca = nc.getAttributes().getNamedItemNS(EdmNamespaces.getNsUri().get("rdf"), "resource");
-                if (nca != null && nca.getTextContent().equals(wasPresentAtUri)) {
-                    n.getParentNode().removeChild(n);
-                    return;
+                    ed.getIndex().removeReference(n);
                 }
             }
         }
-    }
-
-    /**
-     * Removes a specific edm:TimeSpan
-     *
-     * @param doc
-     * @param aboutUri
-     */
-    private static void removeTimeSpan(Document doc, String aboutUri) {
-        final NodeList nl = doc.getElementsByTagNameNS(EdmNamespaces.getNsUri().get("edm"), "TimeSpan");
-        for (int i = 0; i < nl.getLength(); ++i) {
-            final Node n = nl.item(i);
-
-            if (n == null || n.getNodeType() != Node.ELEMENT_NODE) {
-                continue;
-            }
-            final Node a = n.getAttributes().getNamedItemNS(EdmNamespaces.getNsUri().get("rdf"), "about");
-            if (a == null || !a.getTextContent().equals(aboutUri)) {
-                continue;
-            }
-
-            n.getParentNode().removeChild(n);
-            return;
-        }
-    }
-
-    /**
-     * Removes a specific edm:Place
-     *
-     * @param doc
-     * @param aboutUri
-     */
-    private static void removePlace(Document doc, String aboutUri) {
-        final NodeList nl = doc.getElementsByTagNameNS(EdmNamespaces.getNsUri().get("edm"), "Place");
-        for (int i = 0; i < nl.getLength(); ++i) {
-            final Node n = nl.item(i);
-
-            if (n == null || n.getNodeType() != Node.ELEMENT_NODE) {
-                continue;
-            }
-            final Node a = n.getAttributes().getNamedItemNS(EdmNamespaces.getNsUri().get("rdf"), "about");
-            if (a == null || !a.getTextContent().equals(aboutUri)) {
-                continue;
-            }
-            n.getParentNode().removeChild(n);
-            return;
-        }
+        ed.setDoc(doc);
     }
 
     /**
@@ -226,37 +96,43 @@ public class EdmHasMetFilter implements FilterInterface {
     }
 
     /**
+     * Resets the state for the next document
      *
+     * @param ed
+     */
+    @Override
+    public void startDocument(EuropackDoc ed) {
+        count = 0;
+    }
+
+    /**
+     * Streaming version of {@link #filter(EuropackDoc)}
      *
-     * @param node
-     * @param ns
-     * @param elementName
-     * @param attrNS
-     * @param attrName
-     * @param attriValue If null attribute value can be anything
-     * @param rekursiv
+     * @param path
+     * @param e
      * @return
      */
-    protected static List<Node> getElementsByNameAndAttribute(Node node, String ns, String elementName, String attrNS, String attrName, String attriValue, boolean rekursiv) {
-        final NodeList nodeList = node.getChildNodes();
-        final List<Node> newList = new ArrayList<>();
-        for (int i = 0; i < nodeList.getLength(); i++) {
-            final Node n = nodeList.item(i);
-            if (n == null || n.getNodeType() != Node.ELEMENT_NODE) {
-                continue;
-            } else if (n.hasChildNodes() && rekursiv) {
-                newList.addAll(getElementsByName(n, ns, elementName, rekursiv));
-            }
-
-            if (n.getNamespaceURI().equals(ns) && n.getLocalName().equals(elementName)) {
-                final Node a = n.getAttributes().getNamedItemNS(attrNS, attrName);
-                if (a != null && (attriValue == null || a.getTextContent().equals(attriValue))) {
-                    // found element
-                    newList.add(n);
-                }
-            }
+    @Override
+    public Action startElement(StreamPath path, StartElement e) {
+        if (StreamPath.is(e.getName(), "edm", "ProvidedCHO")) {
+            ++count;
+            return Action.KEEP;
         }
-        return newList;
+        return StreamPath.is(e.getName(), "edm", "hasMet")
+                && StreamPath.attribute(e, "rdf", "resource") != null
+                && StreamPath.is(path.parent(), "edm", "ProvidedCHO") && count == 1
+                ? Action.DROP : Action.KEEP;
+    }
+
+    /**
+     * The edm:Event of a dropped edm:hasMet goes with its Agent, TimeSpan
+     * and Place, unless they are still referenced
+     *
+     * @return
+     */
+    @Override
+    public boolean isCascading() {
+        return true;
     }
 
     /**
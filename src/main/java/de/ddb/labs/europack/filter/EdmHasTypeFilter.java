@@ -17,6 +17,7 @@ package de.ddb.labs.europack.filter;
 
 import de.ddb.labs.europack.processor.EdmNamespaces;
 import de.ddb.labs.europack.processor.EuropackDoc;
+import javax.xml.stream.events.StartElement;
 import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpression;
 import javax.xml.xpath.XPathExpressionException;
@@ -29,23 +30,24 @@ import org.w3c.dom.NodeList;
  *
  * @author Michael Büchner <m.buechner@dnb.de>
  */
-public class EdmHasTypeFilter implements FilterInterface {
+public class EdmHasTypeFilter implements StreamFilterInterface {
 
     // private final static Logger LOG = LoggerFactory.getLogger(EdmHasTypeFilter.class);
     // select <dcterms:subject ns4:resource="PL35QIAPCMLUV7AJYKP2HCK4IUADKTKD" />
     private final static String EX0 = "//*[namespace-uri()='" + EdmNamespaces.getNsUri().get("edm") + "' and local-name()='ProvidedCHO']\n"
             + "/*[namespace-uri()='" + EdmNamespaces.getNsUri().get("edm") + "' and local-name()='hasType']";
-    private XPathFactory factory;
+    private XPathExpression expr0;
 
     public EdmHasTypeFilter() {
     }
 
     @Override
-    public void init() throws IllegalStateException {
-        factory = XPathFactory.newInstance();
+    public void init() throws XPathExpressionException {
+        final XPathFactory factory = XPathFactory.newInstance();
         if (factory == null) {
             throw new IllegalStateException("XPathFactory is null. This filter won't work.");
         }
+        expr0 = factory.newXPath().compile(EX0);
     }
 
     /**
@@ -58,7 +60,6 @@ public class EdmHasTypeFilter implements FilterInterface {
     public void filter(EuropackDoc ed) throws XPathExpressionException {
         final Document doc = ed.getDoc();
 
-        final XPathExpression expr0 = factory.newXPath().compile(EX0);
         final Object result0 = expr0.evaluate(doc, XPathConstants.NODESET);
         final NodeList nodeList0 = (NodeList) result0;
         if (nodeList0 == null || nodeList0.getLength() < 1) {
@@ -66,27 +67,35 @@ public class EdmHasTypeFilter implements FilterInterface {
         }
         for (int i = 0; i < nodeList0.getLength(); ++i) {
             final Node n0 = nodeList0.item(i);
-            final String uri = n0.getAttributes().getNamedItemNS(EdmNamespaces.getNsUri().get("rdf"), "resource").getTextContent();
-            n0.getParentNode().removeChild(n0);
-
-            // select <skos:Concept ns3:about="WPRBQ7I66NXDYF66W4SLDWXHI5HZXDI7" 
-            // xmlns:dc="http://purl.org/dc/elements/1.1/" xmlns:foaf="http://xmlns.com/foaf/0.1/"
-            // xmlns:ore="http://www.openarchives.org/ore/terms/" 
-            // xmlns:skos="http://www.w3.org/2004/02/skos/core#">
-            final String ex1 = "//*[namespace-uri()='" + EdmNamespaces.getNsUri().get("skos") + "' and local-name()='Concept']\n"
-                    + "[@*[namespace-uri()='" + EdmNamespaces.getNsUri().get("rdf") + "' and local-name()='about'] = '" + uri + "']";
-
-            final XPathExpression expr1 = factory.newXPath().compile(ex1);
-            final Object result1 = expr1.evaluate(doc, XPathConstants.NODESET);
-            final NodeList nodeList1 = (NodeList) result1;
-            for (int j = 0; j < nodeList1.getLength(); ++j) {
-                final Node n1 = nodeList1.item(j);
-                n1.getParentNode().removeChild(n1);
-            }
+            ed.getIndex().removeReference(n0);
         }
         ed.setDoc(doc);
     }
 
+    /**
+     * Streaming version of {@link #filter(EuropackDoc)}
+     *
+     * @param path
+     * @param e
+     * @return
+     */
+    @Override
+    public Action startElement(StreamPath path, StartElement e) {
+        return StreamPath.is(e.getName(), "edm", "hasType")
+                && StreamPath.is(path.parent(), "edm", "ProvidedCHO")
+                ? Action.DROP : Action.KEEP;
+    }
+
+    /**
+     * The skos:Concept of a dropped edm:hasType goes, too
+     *
+     * @return
+     */
+    @Override
+    public boolean isCascading() {
+        return true;
+    }
+
     /**
      * Description of this Filter
      *
@@ -0,0 +1,353 @@
+/*
+ * Copyright 2019, 2025 Michael Büchner <m.buechner@dnb.de>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.labs.europack.filter;
+
+import de.ddb.labs.europack.processor.EuropackDoc;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import javax.xml.XMLConstants;
+import javax.xml.namespace.QName;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.events.StartElement;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.dom.DOMResult;
+import javax.xml.transform.dom.DOMSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * Applies several suppression stylesheets in one single pass. A suppression
+ * stylesheet consists of the identity template and empty templates only (e.g.
+ * <code>DcDescriptionFilter.xsl</code>). All empty templates of the fused
+ * filters are merged into one generated stylesheet, so the document is copied
+ * once instead of once per filter. With the streaming engine the patterns
+ * are matched against the element path, without any stylesheet.
+ *
+ * @author Michael Büchner <m.buechner@dnb.de>
+ */
+public class FusedXslFilter implements StreamFilterInterface {
+
+    private final static Logger LOG = LoggerFactory.getLogger(FusedXslFilter.class);
+    private static final String XSL_NS = "http://www.w3.org/1999/XSL/Transform";
+    // only plain child steps, e.g. edm:ProvidedCHO/dc:description
+    private static final Pattern MATCH_PATTERN = Pattern.compile("[\\w.-]+:[\\w.-]+(/[\\w.-]+:[\\w.-]+)*");
+    private static final Set<String> IDENTITY = Set.of("@*", "node()");
+    private static final Map<String, Optional<Suppression>> SUPPRESSIONS = new ConcurrentHashMap<>();
+    private final List<String> filters;
+    private Transformer transformer;
+    // patterns as steps of names, for streaming
+    private List<List<QName>> paths;
+
+    private static final class Suppression {
+
+        private final Map<String, String> namespaces; // prefix -> namespace URI
+        private final List<String> patterns;
+
+        private Suppression(Map<String, String> namespaces, List<String> patterns) {
+            this.namespaces = namespaces;
+            this.patterns = patterns;
+        }
+    }
+
+    /**
+     *
+     * @param filters names of the fused filters, each of them must be
+     * {@link #isFusable(java.lang.String) fusable}
+     */
+    public FusedXslFilter(List<String> filters) {
+        this.filters = List.copyOf(filters);
+    }
+
+    /**
+     * Checks whether the stylesheet <code>filters/&lt;name&gt;.xsl</code> is a
+     * suppression stylesheet which can be fused with others.
+     *
+     * @param name name of the filter (and the stylesheet)
+     * @return true, if the filter can be fused
+     */
+    public static boolean isFusable(String name) {
+        return getSuppression(name).isPresent();
+    }
+
+    /**
+     * Checks whether there is a stylesheet <code>filters/&lt;name&gt;.xsl</code>
+     * for the filter.
+     *
+     * @param name name of the filter
+     * @return true, if the filter has got a stylesheet
+     */
+    public static boolean hasStylesheet(String name) {
+        return FusedXslFilter.class.getClassLoader().getResource("filters/" + name + ".xsl") != null;
+    }
+
+    private static Optional<Suppression> getSuppression(String name) {
+        return SUPPRESSIONS.computeIfAbsent(name, FusedXslFilter::parse);
+    }
+
+    private static Optional<Suppression> parse(String name) {
+        final String xsltFileName = "filters/" + name + ".xsl";
+        try (final InputStream is = FusedXslFilter.class.getClassLoader().getResourceAsStream(xsltFileName)) {
+            if (is == null) {
+                return Optional.empty();
+            }
+            final DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+            dbf.setNamespaceAware(true);
+            final Element stylesheet = dbf.newDocumentBuilder().parse(is).getDocumentElement();
+            if (!isXsl(stylesheet, "stylesheet") && !isXsl(stylesheet, "transform")) {
+                return Optional.empty();
+            }
+
+            final Map<String, String> namespaces = new LinkedHashMap<>();
+            final NamedNodeMap attributes = stylesheet.getAttributes();
+            for (int i = 0; i < attributes.getLength(); ++i) {
+                final Attr a = (Attr) attributes.item(i);
+                if (XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(a.getNamespaceURI()) && !XSL_NS.equals(a.getValue())) {
+                    namespaces.put(a.getLocalName(), a.getValue());
+                }
+            }
+
+            final List<String> patterns = new ArrayList<>();
+            boolean identity = false;
+            final NodeList children = stylesheet.getChildNodes();
+            for (int i = 0; i < children.getLength(); ++i) {
+                final Node n = children.item(i);
+                if (isIgnorable(n)) {
+                    continue;
+                }
+                if (!(n instanceof Element)) {
+                    return Optional.empty();
+                }
+                final Element e = (Element) n;
+                if (isXsl(e, "output")) {
+                    continue;
+                }
+                if (isXsl(e, "strip-space") && "*".equals(e.getAttribute("elements"))) {
+                    continue;
+                }
+                if (!isXsl(e, "template") || e.getAttributes().getLength() != 1 || !e.hasAttribute("match")) {
+                    return Optional.empty();
+                }
+                final String match = e.getAttribute("match");
+                if (isIdentity(e)) {
+                    identity = true;
+                } else if (isEmpty(e) && MATCH_PATTERN.matcher(match.trim()).matches()) {
+                    patterns.add(match.trim());
+                } else {
+                    return Optional.empty();
+                }
+            }
+            if (!identity || patterns.isEmpty()) {
+                return Optional.empty();
+            }
+            return Optional.of(new Suppression(namespaces, patterns));
+        } catch (Exception ex) {
+            LOG.warn("Cannot analyse stylesheet {}. {}", xsltFileName, ex.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private static boolean isXsl(Element e, String localName) {
+        return XSL_NS.equals(e.getNamespaceURI()) && localName.equals(e.getLocalName());
+    }
+
+    private static boolean isIgnorable(Node n) {
+        return n.getNodeType() == Node.COMMENT_NODE
+                || (n.getNodeType() == Node.TEXT_NODE && n.getTextContent().isBlank());
+    }
+
+    private static boolean isEmpty(Element template) {
+        final NodeList children = template.getChildNodes();
+        for (int i = 0; i < children.getLength(); ++i) {
+            if (!isIgnorable(children.item(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isIdentity(Element template) {
+        if (!IDENTITY.equals(union(template.getAttribute("match")))) {
+            return false;
+        }
+        final List<Element> copy = elementChildren(template);
+        if (copy == null || copy.size() != 1 || !isXsl(copy.get(0), "copy") || copy.get(0).getAttributes().getLength() != 0) {
+            return false;
+        }
+        final List<Element> apply = elementChildren(copy.get(0));
+        return apply != null
+                && apply.size() == 1
+                && isXsl(apply.get(0), "apply-templates")
+                && apply.get(0).getAttributes().getLength() == 1
+                && IDENTITY.equals(union(apply.get(0).getAttribute("select")))
+                && isEmpty(apply.get(0));
+    }
+
+    private static Set<String> union(String expression) {
+        final Set<String> set = new HashSet<>();
+        for (String s : Arrays.asList(expression.split("\\|"))) {
+            set.add(s.trim());
+        }
+        return set;
+    }
+
+    /**
+     * @return the element children or null, if there is text content
+     */
+    private static List<Element> elementChildren(Element parent) {
+        final List<Element> list = new ArrayList<>();
+        final NodeList children = parent.getChildNodes();
+        for (int i = 0; i < children.getLength(); ++i) {
+            final Node n = children.item(i);
+            if (n instanceof Element) {
+                list.add((Element) n);
+            } else if (!isIgnorable(n)) {
+                return null;
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Generates the single-pass stylesheet: one identity template plus the
+     * empty templates of all fused filters. Namespace declarations are put on
+     * each template, so equal prefixes of different filters cannot clash.
+     */
+    private Document generate() throws ParserConfigurationException {
+        final DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+        dbf.setNamespaceAware(true);
+        final Document xsl = dbf.newDocumentBuilder().newDocument();
+        final Element stylesheet = xsl.createElementNS(XSL_NS, "xsl:stylesheet");
+        stylesheet.setAttribute("version", "1.0");
+        xsl.appendChild(stylesheet);
+
+        final Element output = xsl.createElementNS(XSL_NS, "xsl:output");
+        output.setAttribute("encoding", "utf-8");
+        output.setAttribute("indent", "yes");
+        output.setAttribute("method", "xml");
+        output.setAttribute("omit-xml-declaration", "no");
+        output.setAttribute("standalone", "yes");
+        output.setAttribute("version", "1.0");
+        stylesheet.appendChild(output);
+
+        final Element stripSpace = xsl.createElementNS(XSL_NS, "xsl:strip-space");
+        stripSpace.setAttribute("elements", "*");
+        stylesheet.appendChild(stripSpace);
+
+        // copy all
+        final Element identity = xsl.createElementNS(XSL_NS, "xsl:template");
+        identity.setAttribute("match", "@* | node()");
+        final Element copy = xsl.createElementNS(XSL_NS, "xsl:copy");
+        final Element apply = xsl.createElementNS(XSL_NS, "xsl:apply-templates");
+        apply.setAttribute("select", "@* | node()");
+        copy.appendChild(apply);
+        identity.appendChild(copy);
+        stylesheet.appendChild(identity);
+
+        for (String f : filters) {
+            final Suppression s = getSuppression(f)
+                    .orElseThrow(() -> new IllegalArgumentException(f + " is not a suppression stylesheet"));
+            stylesheet.appendChild(xsl.createComment(" " + f + " "));
+            for (String pattern : s.patterns) {
+                final Element template = xsl.createElementNS(XSL_NS, "xsl:template");
+                for (Map.Entry<String, String> ns : s.namespaces.entrySet()) {
+                    template.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI, "xmlns:" + ns.getKey(), ns.getValue());
+                }
+                template.setAttribute("match", pattern);
+                stylesheet.appendChild(template);
+            }
+        }
+        return xsl;
+    }
+
+    @Override
+    public void init() throws ParserConfigurationException, TransformerConfigurationException {
+        transformer = XslTemplatesCache.getInstance().newTransformer(getName(), new DOMSource(generate()));
+        paths = new ArrayList<>();
+        for (String f : filters) {
+            final Suppression s = getSuppression(f).orElseThrow();
+            for (String pattern : s.patterns) {
+                final List<QName> steps = new ArrayList<>();
+                for (String step : pattern.split("/")) {
+                    final String[] name = step.split(":");
+                    final String uri = s.namespaces.get(name[0]);
+                    if (uri == null) {
+                        throw new IllegalArgumentException("Undeclared prefix in " + f + ": " + pattern);
+                    }
+                    steps.add(new QName(uri, name[1]));
+                }
+                paths.add(steps);
+            }
+        }
+    }
+
+    @Override
+    public void filter(EuropackDoc ed) throws Exception {
+        transformer.reset();
+        final Document doc = ed.getDoc();
+        final DOMSource source = new DOMSource(doc);
+        final DOMResult result = new DOMResult();
+        transformer.transform(source, result);
+        ed.setDoc((Document) result.getNode());
+    }
+
+    @Override
+    public Action startElement(StreamPath path, StartElement e) {
+        for (List<QName> steps : paths) {
+            if (path.endsWith(steps)) {
+                return Action.DROP;
+            }
+        }
+        return Action.KEEP;
+    }
+
+    /**
+     * Description of this Filter
+     *
+     * @return
+     */
+    @Override
+    public String getDescription() {
+        return "Wendet die XSL-Filter " + String.join(", ", filters) + " in einem Durchlauf an";
+    }
+
+    /**
+     * Name of this Filter
+     *
+     * @return
+     */
+    @Override
+    public String getName() {
+        return String.join("+", filters);
+    }
+
+}
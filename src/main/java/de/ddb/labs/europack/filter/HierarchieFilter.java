@@ -17,6 +17,10 @@ package de.ddb.labs.europack.filter;
 
 import de.ddb.labs.europack.processor.EdmNamespaces;
 import de.ddb.labs.europack.processor.EuropackDoc;
+import javax.xml.namespace.QName;
+import javax.xml.stream.events.Characters;
+import javax.xml.stream.events.StartElement;
+import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpression;
 import javax.xml.xpath.XPathExpressionException;
@@ -31,56 +35,56 @@ import org.w3c.dom.NodeList;
  *
  * @author Michael Büchner <m.buechner@dnb.de>
  */
-public class HierarchieFilter implements FilterInterface {
+public class HierarchieFilter implements StreamFilterInterface {
 
     private static final Logger LOG = LoggerFactory.getLogger(HierarchieFilter.class);
-    private XPathFactory factory;
+    private final static String EX_IS_PART_OF
+            = // "/*[namespace-uri()='" + EdmNamespaces.getNsUri().get("ddb-cortex") + "' and local-name()='edm']"
+            // + "/*[namespace-uri()='" + EdmNamespaces.getNsUri().get("rdf") + "' and local-name()='RDF']"
+            "//*[namespace-uri()='" + EdmNamespaces.getNsUri().get("edm") + "' and local-name()='ProvidedCHO']"
+            + "/*[namespace-uri()='" + EdmNamespaces.getNsUri().get("dcterms") + "' and local-name()='isPartOf']";
+    private final static String EX_HIERARCHY_TYPE
+            = // "/*[namespace-uri()='" + EdmNamespaces.getNsUri().get("ddb-cortex") + "' and local-name()='edm']"
+            // + "/*[namespace-uri()='" + EdmNamespaces.getNsUri().get("rdf") + "' and local-name()='RDF']"
+            "//*[namespace-uri()='" + EdmNamespaces.getNsUri().get("edm") + "' and local-name()='ProvidedCHO']"
+            + "/*[namespace-uri()='" + EdmNamespaces.getNsUri().get("ddb-edm") + "' and local-name()='hierarchyType']";
+    // same namespace as in EX_HIERARCHY_TYPE
+    private final static QName HIERARCHY_TYPE = new QName("" + EdmNamespaces.getNsUri().get("ddb-edm"), "hierarchyType");
+    private XPathExpression isPartOf, hierarchyType;
+    // streaming: isPartOf found, text of the first hierarchyType and its depth
+    private boolean partOf;
+    private StringBuilder type;
+    private int typeDepth;
 
     public HierarchieFilter() {
     }
 
     @Override
-    public void init() throws IllegalStateException {
-        factory = XPathFactory.newInstance();
+    public void init() throws XPathExpressionException {
+        final XPathFactory factory = XPathFactory.newInstance();
         if (factory == null) {
             throw new IllegalStateException("XPathFactory is null. This filter won't work.");
         }
+        final XPath xpath = factory.newXPath();
+        isPartOf = xpath.compile(EX_IS_PART_OF);
+        hierarchyType = xpath.compile(EX_HIERARCHY_TYPE);
     }
 
     private boolean ruleOne(Document doc) throws XPathExpressionException {
-        final String ex
-                = // "/*[namespace-uri()='" + EdmNamespaces.getNsUri().get("ddb-cortex") + "' and local-name()='edm']"
-                // + "/*[namespace-uri()='" + EdmNamespaces.getNsUri().get("rdf") + "' and local-name()='RDF']"
-                "//*[namespace-uri()='" + EdmNamespaces.getNsUri().get("edm") + "' and local-name()='ProvidedCHO']"
-                + "/*[namespace-uri()='" + EdmNamespaces.getNsUri().get("dcterms") + "' and local-name()='isPartOf']";
-
-        final XPathExpression expr = factory.newXPath().compile(ex);
-        final Object result = expr.evaluate(doc, XPathConstants.NODESET);
+        final Object result = isPartOf.evaluate(doc, XPathConstants.NODESET);
         final NodeList nodeList = (NodeList) result;
         return nodeList.getLength() > 0;
     }
 
     private boolean ruleTwo(Document doc) throws XPathExpressionException {
-        final String ex
-                = // "/*[namespace-uri()='" + EdmNamespaces.getNsUri().get("ddb-cortex") + "' and local-name()='edm']"
-                // + "/*[namespace-uri()='" + EdmNamespaces.getNsUri().get("rdf") + "' and local-name()='RDF']"
-                "//*[namespace-uri()='" + EdmNamespaces.getNsUri().get("edm") + "' and local-name()='ProvidedCHO']"
-                + "/*[namespace-uri()='" + EdmNamespaces.getNsUri().get("ddb-edm") + "' and local-name()='hierarchyType']";
-        final XPathExpression expr = factory.newXPath().compile(ex);
-        final Object result = expr.evaluate(doc, XPathConstants.NODE);
+        final Object result = hierarchyType.evaluate(doc, XPathConstants.NODE);
         final Node node = (Node) result;
         final String nodeText = node.getTextContent();
         return nodeText.equalsIgnoreCase("htype_007");
     }
 
     private boolean ruleThree(Document doc) throws XPathExpressionException {
-        final String ex
-                = // "/*[namespace-uri()='" + EdmNamespaces.getNsUri().get("ddb-cortex") + "' and local-name()='edm']"
-                // + "/*[namespace-uri()='" + EdmNamespaces.getNsUri().get("rdf") + "' and local-name()='RDF']"
-                "//*[namespace-uri()='" + EdmNamespaces.getNsUri().get("edm") + "' and local-name()='ProvidedCHO']"
-                + "/*[namespace-uri()='" + EdmNamespaces.getNsUri().get("ddb-edm") + "' and local-name()='hierarchyType']";
-        final XPathExpression expr = factory.newXPath().compile(ex);
-        final Object result = expr.evaluate(doc, XPathConstants.NODE);
+        final Object result = hierarchyType.evaluate(doc, XPathConstants.NODE);
         final Node node = (Node) result;
         final String nodeText = node.getTextContent();
         return nodeText.equalsIgnoreCase("htype_020") || nodeText.equalsIgnoreCase("htype_023");
@@ -118,6 +122,10 @@ public class HierarchieFilter implements FilterInterface {
             ruleThree = false;
         }
 
+        decide(ed, ruleOne, ruleTwo, ruleThree);
+    }
+
+    private void decide(EuropackDoc ed, boolean ruleOne, boolean ruleTwo, boolean ruleThree) {
         // isPartOf vorhanden -> herausfiltern
         if (ruleOne) {
             // hierarchyType=htype_007, dann NICHT herausfiltern 
@@ -135,6 +143,60 @@ public class HierarchieFilter implements FilterInterface {
         }
     }
 
+    /**
+     * Resets the state for the next document
+     *
+     * @param ed
+     */
+    @Override
+    public void startDocument(EuropackDoc ed) {
+        partOf = false;
+        type = null;
+        typeDepth = 0;
+    }
+
+    /**
+     * Streaming version of {@link #filter(EuropackDoc)}
+     *
+     * @param path
+     * @param e
+     * @return
+     */
+    @Override
+    public Action startElement(StreamPath path, StartElement e) {
+        if (StreamPath.is(path.parent(), "edm", "ProvidedCHO")) {
+            if (StreamPath.is(e.getName(), "dcterms", "isPartOf")) {
+                partOf = true;
+            } else if (type == null && HIERARCHY_TYPE.equals(e.getName())) {
+                type = new StringBuilder();
+                typeDepth = path.depth();
+            }
+        }
+        return Action.KEEP;
+    }
+
+    @Override
+    public void characters(StreamPath path, Characters c) {
+        if (typeDepth > 0) {
+            type.append(c.getData());
+        }
+    }
+
+    @Override
+    public void endElement(StreamPath path) {
+        if (path.depth() == typeDepth) {
+            typeDepth = 0;
+        }
+    }
+
+    @Override
+    public StreamPass endDocument(EuropackDoc ed) {
+        final String nodeText = type == null ? "" : type.toString();
+        decide(ed, partOf, nodeText.equalsIgnoreCase("htype_007"),
+                nodeText.equalsIgnoreCase("htype_020") || nodeText.equalsIgnoreCase("htype_023"));
+        return null;
+    }
+
     /**
      * Description of this Filter
      *
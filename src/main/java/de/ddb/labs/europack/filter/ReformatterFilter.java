@@ -17,21 +17,24 @@ package de.ddb.labs.europack.filter;
 
 import de.ddb.labs.europack.processor.EdmNamespaces;
 import de.ddb.labs.europack.processor.EuropackDoc;
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import javax.xml.XMLConstants;
+import javax.xml.namespace.QName;
 import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.Namespace;
+import javax.xml.stream.events.StartElement;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMResult;
 import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamSource;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.NamedNodeMap;
@@ -42,7 +45,7 @@ import org.w3c.dom.NodeList;
  *
  * @author Michael Büchner <m.buechner@dnb.de>
  */
-public class ReformatterFilter implements FilterInterface {
+public class ReformatterFilter implements StreamFilterInterface {
 
     // private static final Logger LOG = LoggerFactory.getLogger(ReformatterFilter.class);
 
@@ -54,12 +57,7 @@ public class ReformatterFilter implements FilterInterface {
     @Override
     public void init() throws IOException, TransformerConfigurationException {
         DocumentBuilderFactory.newInstance().setNamespaceAware(true);
-        final String xsltFileName = "filters/" + ReformatterFilter.class.getSimpleName() + ".xsl";
-        final InputStream is = this.getClass().getClassLoader().getResourceAsStream(xsltFileName);
-        final InputStreamReader isr = new InputStreamReader(is, Charset.forName("UTF-8"));
-        final BufferedReader br = new BufferedReader(isr);
-        transformer = TransformerFactory.newInstance().newTransformer(new StreamSource(br));
-
+        transformer = XslTemplatesCache.getInstance().newTransformer(ReformatterFilter.class.getSimpleName());
     }
 
     /**
@@ -165,6 +163,102 @@ public class ReformatterFilter implements FilterInterface {
 
     }
 
+    /**
+     * Streaming version of {@link #filter(EuropackDoc)}: another pass (after
+     * the orphaned contextual resources have been removed) collects the
+     * namespaces in use, a third one declares them on the root element. The
+     * indentation is kept as in the original.
+     *
+     * @param path
+     * @param e
+     * @return
+     */
+    @Override
+    public Action startElement(StreamPath path, StartElement e) {
+        return Action.KEEP;
+    }
+
+    @Override
+    public StreamPass endDocument(EuropackDoc ed) {
+        return new NamespaceCollector();
+    }
+
+    /**
+     * Collects the namespaces used by elements and attributes.
+     */
+    private static class NamespaceCollector implements StreamPass {
+
+        // URI -> prefix
+        private final Map<String, String> used = new HashMap<>();
+
+        @Override
+        public Action startElement(StreamPath path, StartElement e) {
+            final QName name = e.getName();
+            if (!name.getNamespaceURI().isEmpty() && !name.getPrefix().isEmpty()) {
+                used.put(name.getNamespaceURI(), EdmNamespaces.getUriNs().getOrDefault(name.getNamespaceURI(), name.getPrefix()));
+            }
+            for (Iterator<Attribute> it = e.getAttributes(); it.hasNext();) {
+                final QName attr = it.next().getName();
+                if (!attr.getNamespaceURI().isEmpty() && !XMLConstants.XML_NS_URI.equals(attr.getNamespaceURI())) {
+                    used.put(attr.getNamespaceURI(), EdmNamespaces.getUriNs().getOrDefault(attr.getNamespaceURI(), attr.getPrefix()));
+                }
+            }
+            return Action.KEEP;
+        }
+
+        @Override
+        public StreamPass endDocument(EuropackDoc ed) {
+            return new NamespaceRewriter(used);
+        }
+    }
+
+    /**
+     * Declares the used namespaces in the root element only, with the EDM
+     * prefixes.
+     */
+    private static class NamespaceRewriter implements StreamPass {
+
+        private final Map<String, String> used;
+        private final XMLEventFactory eventFactory;
+
+        private NamespaceRewriter(Map<String, String> used) {
+            this.used = used;
+            this.eventFactory = XMLEventFactory.newInstance();
+        }
+
+        @Override
+        public Action startElement(StreamPath path, StartElement e) {
+            return Action.KEEP;
+        }
+
+        @Override
+        public StartElement rewrite(StreamPath path, StartElement e) {
+            final QName name = e.getName();
+            final String prefix = used.getOrDefault(name.getNamespaceURI(), name.getPrefix());
+
+            final List<Attribute> attributes = new ArrayList<>();
+            for (Iterator<Attribute> it = e.getAttributes(); it.hasNext();) {
+                final Attribute a = it.next();
+                final String uri = a.getName().getNamespaceURI();
+                attributes.add(used.containsKey(uri)
+                        ? eventFactory.createAttribute(used.get(uri), uri, a.getName().getLocalPart(), a.getValue())
+                        : a);
+            }
+
+            final List<Namespace> namespaces = new ArrayList<>();
+            if (path.depth() == 1) {
+                for (Map.Entry<String, String> ns : used.entrySet()) {
+                    namespaces.add(eventFactory.createNamespace(ns.getValue(), ns.getKey()));
+                }
+            }
+            if (prefix.isEmpty() && !name.getNamespaceURI().isEmpty()) {
+                namespaces.add(eventFactory.createNamespace(name.getNamespaceURI()));
+            }
+            return eventFactory.createStartElement(prefix, name.getNamespaceURI(), name.getLocalPart(),
+                    attributes.iterator(), namespaces.iterator(), e.getNamespaceContext());
+        }
+    }
+
     /**
      * Description of this Filter
      *
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2019, 2025 Michael Büchner <m.buechner@dnb.de>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.labs.europack.filter;
+
+import de.ddb.labs.europack.processor.EuropackDoc;
+
+/**
+ * A filter which can also work on the StAX events of a document, without a
+ * DOM. The streaming engine (<code>europack.processor.engine=stax</code>)
+ * calls the methods of {@link StreamPass} instead of
+ * {@link #filter(EuropackDoc)}.
+ *
+ * @author Michael Büchner <m.buechner@dnb.de>
+ */
+public interface StreamFilterInterface extends FilterInterface, StreamPass {
+
+    /**
+     * Tells the streaming engine to drop the contextual resources which are
+     * no longer reachable, because the filter dropped the properties pointing
+     * to them; like
+     * {@link de.ddb.labs.europack.processor.ResourceIndex#removeReference(org.w3c.dom.Node)}
+     * in {@link #filter(EuropackDoc)}.
+     *
+     * @return true, if the filter drops properties together with the resources
+     * they point to
+     */
+    public default boolean isCascading() {
+        return false;
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2019, 2025 Michael Büchner <m.buechner@dnb.de>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.labs.europack.filter;
+
+import de.ddb.labs.europack.processor.EuropackDoc;
+import javax.xml.stream.events.Characters;
+import javax.xml.stream.events.StartElement;
+
+/**
+ * One pass of the streaming engine over the StAX events of a document. A
+ * {@link StreamFilterInterface filter} is the first pass of its own; it may
+ * ask for further passes (e.g. to declare the namespaces still in use), which
+ * exist for the streaming engine only and are no filters of their own.
+ * <p>
+ * A pass only gets the events of elements which have not been dropped or
+ * unwrapped by a pass before it; the children of an unwrapped element are
+ * passed on. A pass gets {@link #endElement(StreamPath)} for every element it
+ * got {@link #startElement(StreamPath, StartElement)} for.
+ *
+ * @author Michael Büchner <m.buechner@dnb.de>
+ */
+public interface StreamPass {
+
+    public enum Action {
+        /**
+         * Keep the element
+         */
+        KEEP,
+        /**
+         * Drop the element with all its content
+         */
+        DROP,
+        /**
+         * Drop the element and its text, but keep its child elements
+         */
+        UNWRAP;
+    }
+
+    /**
+     * Called before the first event of a document.
+     *
+     * @param ed
+     */
+    public default void startDocument(EuropackDoc ed) {
+    }
+
+    /**
+     *
+     * @param path elements from the root to the current one
+     * @param e the start element
+     * @return what to do with the element
+     */
+    public Action startElement(StreamPath path, StartElement e);
+
+    /**
+     * Called for elements kept by all passes before writing them, e.g. to
+     * change their namespace declarations.
+     *
+     * @param path elements from the root to the current one
+     * @param e the start element
+     * @return the start element to write
+     */
+    public default StartElement rewrite(StreamPath path, StartElement e) {
+        return e;
+    }
+
+    /**
+     *
+     * @param path elements from the root to the element containing the text
+     * @param c the text
+     */
+    public default void characters(StreamPath path, Characters c) {
+    }
+
+    /**
+     *
+     * @param path elements from the root to the element being closed
+     */
+    public default void endElement(StreamPath path) {
+    }
+
+    /**
+     * Called after the last event of a document. A pass rejects a document by
+     * setting its status.
+     *
+     * @param ed
+     * @return an additional pass over the output or null
+     */
+    public default StreamPass endDocument(EuropackDoc ed) {
+        return null;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2019, 2025 Michael Büchner <m.buechner@dnb.de>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.labs.europack.filter;
+
+import de.ddb.labs.europack.processor.EdmNamespaces;
+import java.util.ArrayList;
+import java.util.List;
+import javax.xml.namespace.QName;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.StartElement;
+
+/**
+ * Names of the elements from the root element to the current element of a
+ * document processed as StAX events.
+ *
+ * @author Michael Büchner <m.buechner@dnb.de>
+ */
+public class StreamPath {
+
+    private final List<QName> names;
+
+    public StreamPath() {
+        this.names = new ArrayList<>();
+    }
+
+    public void push(QName name) {
+        names.add(name);
+    }
+
+    public void pop() {
+        names.remove(names.size() - 1);
+    }
+
+    public void clear() {
+        names.clear();
+    }
+
+    /**
+     * @return number of elements, 1 for the root element
+     */
+    public int depth() {
+        return names.size();
+    }
+
+    /**
+     * @return name of the current element or null
+     */
+    public QName current() {
+        return get(names.size() - 1);
+    }
+
+    /**
+     * @return name of the parent of the current element or null
+     */
+    public QName parent() {
+        return get(names.size() - 2);
+    }
+
+    private QName get(int i) {
+        return i < 0 ? null : names.get(i);
+    }
+
+    /**
+     * Checks, whether the path ends with the given steps, like a pattern
+     * <code>edm:ProvidedCHO/dc:description</code> in XSLT.
+     *
+     * @param steps
+     * @return
+     */
+    public boolean endsWith(List<QName> steps) {
+        final int offset = names.size() - steps.size();
+        if (offset < 0) {
+            return false;
+        }
+        for (int i = 0; i < steps.size(); ++i) {
+            if (!steps.get(i).equals(names.get(offset + i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param name
+     * @param prefix EDM prefix (see {@link EdmNamespaces})
+     * @param localName
+     * @return true, if the name is the EDM element <code>prefix:localName</code>
+     */
+    public static boolean is(QName name, String prefix, String localName) {
+        return name != null
+                && localName.equals(name.getLocalPart())
+                && name.getNamespaceURI().equals(EdmNamespaces.getNsUri().get(prefix));
+    }
+
+    /**
+     * @param e
+     * @param prefix EDM prefix (see {@link EdmNamespaces})
+     * @param localName
+     * @return value of the attribute <code>prefix:localName</code> or null
+     */
+    public static String attribute(StartElement e, String prefix, String localName) {
+        final Attribute a = e.getAttributeByName(new QName(EdmNamespaces.getNsUri().get(prefix), localName));
+        return a == null ? null : a.getValue();
+    }
+}
@@ -17,6 +17,9 @@ package de.ddb.labs.europack.filter;
 
 import de.ddb.labs.europack.processor.EdmNamespaces;
 import de.ddb.labs.europack.processor.EuropackDoc;
+import javax.xml.stream.events.Characters;
+import javax.xml.stream.events.StartElement;
+import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpression;
 import javax.xml.xpath.XPathExpressionException;
@@ -30,23 +33,30 @@ import org.w3c.dom.NodeList;
  *
  * @author Michael Büchner <m.buechner@dnb.de>
  */
-public class VgBildKunstFilter implements FilterInterface {
+public class VgBildKunstFilter implements StreamFilterInterface {
 
     private final static Logger LOG = LoggerFactory.getLogger(VgBildKunstFilter.class);
     private final static String EX0 = "//*[namespace-uri()='" + EdmNamespaces.getNsUri().get("edm") + "' and local-name()='WebResource']/*[namespace-uri()='" + EdmNamespaces.getNsUri().get("dc") + "' and local-name()='rights']";
     private final static String EX1 = "//*[namespace-uri()='" + EdmNamespaces.getNsUri().get("edm") + "' and local-name()='ProvidedCHO']/*[namespace-uri()='" + EdmNamespaces.getNsUri().get("dc") + "' and local-name()='rights']";
 
-    private XPathFactory factory;
+    private XPathExpression expr0, expr1;
+    // streaming: document, text of the current dc:rights and its depth
+    private EuropackDoc current;
+    private final StringBuilder rights = new StringBuilder();
+    private int rightsDepth;
 
     public VgBildKunstFilter() {
     }
 
     @Override
     public void init() throws Exception {
-        factory = XPathFactory.newInstance();
+        final XPathFactory factory = XPathFactory.newInstance();
         if (factory == null) {
             throw new IllegalStateException("XPathFactory is null. This filter won't work.");
         }
+        final XPath xpath = factory.newXPath();
+        expr0 = xpath.compile(EX0);
+        expr1 = xpath.compile(EX1);
     }
 
     /**
@@ -60,11 +70,9 @@ public class VgBildKunstFilter implements FilterInterface {
     public void filter(EuropackDoc ed) throws XPathExpressionException {
         final Document doc = ed.getDoc();
 
-        final XPathExpression expr0 = factory.newXPath().compile(EX0);
         final Object result0 = expr0.evaluate(doc, XPathConstants.NODESET);
         final NodeList nodeList0 = (NodeList) result0;
 
-        final XPathExpression expr1 = factory.newXPath().compile(EX1);
         final Object result1 = expr1.evaluate(doc, XPathConstants.NODESET);
         final NodeList nodeList1 = (NodeList) result1;
 
@@ -101,6 +109,60 @@ public class VgBildKunstFilter implements FilterInterface {
         }
     }
 
+    /**
+     * Resets the state for the next document
+     *
+     * @param ed
+     */
+    @Override
+    public void startDocument(EuropackDoc ed) {
+        current = ed;
+        rightsDepth = 0;
+    }
+
+    /**
+     * Streaming version of {@link #filter(EuropackDoc)}
+     *
+     * @param path
+     * @param e
+     * @return
+     */
+    @Override
+    public Action startElement(StreamPath path, StartElement e) {
+        if (rightsDepth == 0 && StreamPath.is(e.getName(), "dc", "rights")
+                && (StreamPath.is(path.parent(), "edm", "WebResource") || StreamPath.is(path.parent(), "edm", "ProvidedCHO"))) {
+            rightsDepth = path.depth();
+            rights.setLength(0);
+        }
+        return Action.KEEP;
+    }
+
+    @Override
+    public void characters(StreamPath path, Characters c) {
+        if (rightsDepth > 0) {
+            rights.append(c.getData());
+        }
+    }
+
+    @Override
+    public void endElement(StreamPath path) {
+        if (rightsDepth == 0 || path.depth() != rightsDepth) {
+            return;
+        }
+        rightsDepth = 0;
+        final String s = rights.toString().trim();
+        if (s.equals("VG Bild-Kunst, Bonn") || s.equals("Berlinische Galerie / VG Bild-Kunst, Bonn")) {
+            LOG.warn("{}: Filtered out because: \"{}\".", current.getId(), s);
+            current.setStatus(EuropackDoc.Status.INVALID_SAVE);
+        }
+    }
+
+    @Override
+    public StreamPass endDocument(EuropackDoc ed) {
+        current = null;
+        return null;
+    }
+
     /**
      * Description of this Filter
      *
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2019, 2025 Michael Büchner <m.buechner@dnb.de>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.labs.europack.filter;
+
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Process-wide cache of compiled stylesheets. Every stylesheet in
+ * <code>filters/</code> is compiled once into thread-safe {@link Templates};
+ * filters only create (cheap) {@link Transformer} instances from it.
+ *
+ * @author Michael Büchner <m.buechner@dnb.de>
+ */
+public class XslTemplatesCache {
+
+    private final static Logger LOG = LoggerFactory.getLogger(XslTemplatesCache.class);
+    private final TransformerFactory factory;
+    private final Map<String, Entry> templates;
+
+    private static final class InstanceHolder {
+
+        static final XslTemplatesCache INSTANCE = new XslTemplatesCache();
+    }
+
+    private interface Compiler {
+
+        Templates compile() throws IOException, TransformerConfigurationException;
+    }
+
+    private static final class Entry {
+
+        private final Templates templates;
+        private final long compileNanos;
+        private final LongAdder transformers;
+
+        private Entry(Templates templates, long compileNanos) {
+            this.templates = templates;
+            this.compileNanos = compileNanos;
+            this.transformers = new LongAdder();
+        }
+    }
+
+    private XslTemplatesCache() {
+        this.factory = TransformerFactory.newInstance();
+        this.templates = new ConcurrentHashMap<>();
+    }
+
+    public static XslTemplatesCache getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * Creates a new transformer for the stylesheet of a filter. The stylesheet
+     * <code>filters/&lt;name&gt;.xsl</code> is compiled on first use.
+     *
+     * @param name name of the filter (and the stylesheet)
+     * @return a new transformer, to be used by one thread only
+     * @throws IOException if the stylesheet cannot be read
+     * @throws TransformerConfigurationException if the stylesheet cannot be
+     * compiled
+     */
+    public Transformer newTransformer(String name) throws IOException, TransformerConfigurationException {
+        return newTransformer(getEntry(name, () -> compile(name)));
+    }
+
+    /**
+     * Creates a new transformer for a generated stylesheet. The stylesheet is
+     * compiled on first use of the name; later calls ignore the given source.
+     *
+     * @param name unique name of the generated stylesheet
+     * @param stylesheet source of the stylesheet
+     * @return a new transformer, to be used by one thread only
+     * @throws TransformerConfigurationException if the stylesheet cannot be
+     * compiled
+     */
+    public Transformer newTransformer(String name, Source stylesheet) throws TransformerConfigurationException {
+        try {
+            return newTransformer(getEntry(name, () -> factory.newTemplates(stylesheet)));
+        } catch (IOException ex) {
+            // generated stylesheets are not read from anywhere
+            throw new TransformerConfigurationException(ex);
+        }
+    }
+
+    private Transformer newTransformer(Entry entry) throws TransformerConfigurationException {
+        entry.transformers.increment();
+        return entry.templates.newTransformer();
+    }
+
+    private Entry getEntry(String name, Compiler compiler) throws IOException, TransformerConfigurationException {
+        final Entry entry = templates.get(name);
+        if (entry != null) {
+            return entry;
+        }
+        // TransformerFactory is not thread-safe, so compile one at a time
+        synchronized (factory) {
+            Entry newEntry = templates.get(name);
+            if (newEntry == null) {
+                final long t0 = System.nanoTime();
+                final Templates t = compiler.compile();
+                final long compileNanos = System.nanoTime() - t0;
+                LOG.info("Stylesheet {} compiled in {} ms", name, TimeUnit.NANOSECONDS.toMillis(compileNanos));
+                newEntry = new Entry(t, compileNanos);
+                templates.put(name, newEntry);
+            }
+            return newEntry;
+        }
+    }
+
+    private Templates compile(String name) throws IOException, TransformerConfigurationException {
+        final String xsltFileName = "filters/" + name + ".xsl";
+        try (final InputStream is = this.getClass().getClassLoader().getResourceAsStream(xsltFileName)) {
+            if (is == null) {
+                throw new FileNotFoundException("Stylesheet " + xsltFileName + " not found");
+            }
+            final BufferedReader br = new BufferedReader(new InputStreamReader(is, Charset.forName("UTF-8")));
+            return factory.newTemplates(new StreamSource(br));
+        }
+    }
+
+    /**
+     * Logs compile time and number of created transformers per stylesheet.
+     */
+    public void logStatistics() {
+        for (Map.Entry<String, Entry> e : templates.entrySet()) {
+            LOG.info("Stylesheet {}: compiled in {} ms, {} transformer(s) created",
+                    e.getKey(),
+                    TimeUnit.NANOSECONDS.toMillis(e.getValue().compileNanos),
+                    e.getValue().transformers.sum());
+        }
+    }
+}
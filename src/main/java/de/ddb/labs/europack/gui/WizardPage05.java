@@ -25,6 +25,7 @@ import de.ddb.labs.europack.sink.SinkInterface;
 import de.ddb.labs.europack.source.ddbapi.CacheManager;
 import de.ddb.labs.europack.source.ddbapi.DDBIdGetter;
 import de.ddb.labs.europack.source.ddbapi.EdmDownloader;
+import de.ddb.labs.europack.source.ddbapi.ErrorRegistry;
 import de.ddb.labs.europack.source.ddbapi.HttpClientProvider;
 
 import java.awt.Font;
@@ -41,6 +42,7 @@ import java.util.List;
 import java.util.Properties;
 import java.util.Random;
 import java.util.UUID;
+import java.util.function.BooleanSupplier;
 import javax.swing.JOptionPane;
 import javax.swing.SwingUtilities;
 import javax.swing.Timer;
@@ -189,34 +191,26 @@ public class WizardPage05 extends WizardPageEuropack {
             // processor
             final Thread t = new Thread(() -> {
                 try {
+                    final BooleanSupplier canceled = () -> ddbidgetter.isCanceled() || edmdown.isCanceled() || epfp.isCanceled();
                     ddbidgetter.run();
-                    // wait until everyone's finished
-                    while (!ddbidgetter.isDone() || !edmdown.isDone() || !epfp.isDone()) {
-                        if(ddbidgetter.isCanceled() || edmdown.isCanceled() || epfp.isCanceled()) break;
-                        try {
-                            Thread.sleep(100);
-                        } catch (InterruptedException ex) {
-                            // nothing
-                        }
-                    }
+                    // wait until every document taken has been processed or has failed
+                    // (gives up, if nothing moves for europack.processor.idleTimeout)
+                    boolean idle = epfp.getFlowControl().awaitIdle(canceled);
 
-                    List<String> errors = CacheManager.getInstance().getErrorIds(cacheId);
-                    while (!errors.isEmpty()) {
-                        LOG.error("There were {} errors", errors.size());
+                    final ErrorRegistry errors = CacheManager.getInstance().getErrors(cacheId);
+                    while (idle && !errors.isEmpty()) {
+                        LOG.error("There were {} errors ({})", errors.size(), errors);
                         final int confirm = JOptionPane.showOptionDialog(null,
                                 "There were " + errors.size() + " errors.\nShould I try to download and process them again?",
                                 "Exit Confirmation", JOptionPane.YES_NO_OPTION,
                                 JOptionPane.QUESTION_MESSAGE, null, null, null);
                         if (confirm == JOptionPane.YES_OPTION) {
-                            ddbidgetter.addAdditionalJobs(errors, true);
+                            ddbidgetter.addAdditionalJobs(errors.retry(), true);
                             // wait again
-                            while (!ddbidgetter.isDone() || !edmdown.isDone() || !epfp.isDone()) {
-                                if(ddbidgetter.isCanceled() || edmdown.isCanceled() || epfp.isCanceled()) break;
-                            }
+                            idle = epfp.getFlowControl().awaitIdle(canceled);
                         } else {
                             break; //while (!errors.isEmpty())
                         }
-                        errors = CacheManager.getInstance().getErrorIds(cacheId);
                     }
                     try {
                         Thread.sleep(500); // wait to run progressBarTimer again
@@ -224,9 +218,16 @@ public class WizardPage05 extends WizardPageEuropack {
                         // nothing
                     }
                     progressBarTimer.stop();
-                    setFinishEnabled(true);
-                    setCancelEnabled(false);
-                    setNextEnabled(true);
+                    if (idle) {
+                        setFinishEnabled(true);
+                        setCancelEnabled(false);
+                        setNextEnabled(true);
+                    } else if (canceled.getAsBoolean()) {
+                        LOG.warn("Run canceled, {} record(s) not processed", epfp.getFlowControl().getRecords());
+                    } else {
+                        LOG.error("Run did not complete, {} record(s) not processed", epfp.getFlowControl().getRecords());
+                        JOptionPane.showMessageDialog(null, "The run did not complete.\nSee the log for the records not processed.", "Error", JOptionPane.ERROR_MESSAGE);
+                    }
                     updateIcons(); // a last time
                     ddbidgetter.dispose();
                     edmdown.dispose();
@@ -15,6 +15,8 @@
  */
 package de.ddb.labs.europack.processor;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Serializable;
@@ -51,6 +53,9 @@ public class EuropackDoc implements Serializable {
     private Status status;
     private String id;
     private Document doc;
+    // serialized document, if not parsed (yet)
+    private byte[] data;
+    private transient ResourceIndex index;
 
     /**
      *
@@ -89,13 +94,36 @@ public class EuropackDoc implements Serializable {
             throw new IllegalArgumentException("InputStream with document can't be null");
         }
 
+        this.doc = parse(is);
+
+        this.status = Status.VALID;
+    }
+
+    /**
+     * Creates a document from its serialized form. The DOM is built not until
+     * {@link #getDoc()} is called.
+     *
+     * @param id
+     * @param data XML document
+     */
+    public EuropackDoc(String id, byte[] data) throws IllegalArgumentException {
+        this.status = Status.VALID;
+        if (id == null || id.isBlank()) {
+            throw new IllegalArgumentException("DDB ID can't be null");
+        }
+        this.id = id;
+        if (data == null) {
+            throw new IllegalArgumentException("XML document can't be null");
+        }
+        this.data = data;
+    }
+
+    private static Document parse(InputStream is) throws SAXException, IOException, ParserConfigurationException {
         final DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
         dbf.setValidating(false);
         dbf.setNamespaceAware(true);
         final DocumentBuilder db = dbf.newDocumentBuilder();
-        this.doc = db.parse(is);
-
-        this.status = Status.VALID;
+        return db.parse(is);
     }
 
     /**
@@ -106,12 +134,85 @@ public class EuropackDoc implements Serializable {
     }
 
     /**
+     * Returns the DOM of the document. If the document is held in serialized
+     * form, it is parsed now.
+     *
      * @return the doc
+     * @throws IllegalStateException if the serialized document cannot be
+     * parsed
      */
-    public Document getDoc() {
+    public Document getDoc() throws IllegalStateException {
+        if (doc == null && data != null) {
+            try {
+                doc = parse(new ByteArrayInputStream(data));
+                data = null;
+            } catch (SAXException | IOException | ParserConfigurationException ex) {
+                throw new IllegalStateException("Cannot parse document " + id + ". " + ex.getMessage(), ex);
+            }
+        }
         return doc;
     }
 
+    /**
+     * Returns the serialized document (UTF-8). A DOM is serialized as every
+     * sink writes it; a document held in serialized form is returned as it
+     * is, without building a DOM.
+     *
+     * @return the XML document or null, if there is none
+     * @throws TransformerException if the DOM cannot be serialized
+     */
+    public byte[] getData() throws TransformerException {
+        if (doc == null) {
+            return data;
+        }
+        sweep();
+        final Transformer transformer = TransformerFactory.newInstance().newTransformer();
+        transformer.setOutputProperty(OutputKeys.STANDALONE, "yes");
+        transformer.setOutputProperty(OutputKeys.INDENT, "yes");
+        transformer.setOutputProperty(OutputKeys.METHOD, "xml");
+        transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
+        transformer.setOutputProperty(OutputKeys.VERSION, "1.0");
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        transformer.transform(new DOMSource(doc), new StreamResult(out));
+        return out.toByteArray();
+    }
+
+    /**
+     * @return size of the serialized document in bytes, 0 if it is held as
+     * DOM
+     */
+    public int getDataLength() {
+        return data == null ? 0 : data.length;
+    }
+
+    /**
+     * Replaces the document by its serialized form, e.g. the output of a
+     * streaming filter.
+     *
+     * @param data XML document (UTF-8)
+     */
+    public void setData(byte[] data) {
+        if (data == null) {
+            LOG.warn("Someone tried to set an empty (null) xml document. That's illegal and not allowed.");
+            return;
+        }
+        this.data = data;
+        this.doc = null;
+    }
+
+    /**
+     * Returns the resource index of the current document. The index is built
+     * on first use and again after the document has been replaced.
+     *
+     * @return the index
+     */
+    public ResourceIndex getIndex() {
+        if (index == null || index.getDocument() != getDoc()) {
+            index = new ResourceIndex(doc);
+        }
+        return index;
+    }
+
     /**
      * @param doc the doc to set
      */
@@ -120,8 +221,24 @@ public class EuropackDoc implements Serializable {
             LOG.warn("Someone tried to set an empty (null) xml document. That's illegal and not allowed.");
             return;
         }
+        if (doc == this.doc) {
+            sweep();
+        }
         this.doc = doc;
+        this.data = null;
+    }
 
+    /**
+     * Removes the resources orphaned by
+     * {@link ResourceIndex#removeReference(org.w3c.dom.Node)}.
+     */
+    private void sweep() {
+        if (index != null && index.getDocument() == doc) {
+            final int removed = index.sweep();
+            if (removed > 0) {
+                LOG.debug("{}: {} orphaned resource(s) removed", id, removed);
+            }
+        }
     }
 
     /**
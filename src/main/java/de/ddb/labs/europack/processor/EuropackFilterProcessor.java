@@ -16,19 +16,18 @@
 package de.ddb.labs.europack.processor;
 
 import de.ddb.labs.europack.filter.FilterInterface;
+import de.ddb.labs.europack.filter.XslTemplatesCache;
 import de.ddb.labs.europack.sink.SinkInterface;
 import de.ddb.labs.europack.source.ddbapi.CacheManager;
+import de.ddb.labs.europack.source.ddbapi.ErrorRegistry;
 import de.ddb.labs.europack.source.ddbapi.HttpClientProvider;
 
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import javax.xml.transform.TransformerException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.Marker;
@@ -44,10 +43,19 @@ public class EuropackFilterProcessor {
     private static final Marker FILE_MARKER = MarkerFactory.getMarker("FILE");
     private final String cacheId;
     private final int threads;
-    private final int queueCapacity;
+    // documents handed over in memory, more are spilled to the cache
+    private final int handoffCapacity;
+    private final AtomicInteger inMemory;
+    private final FlowControl flow;
     private static final String CACHED_POOL = "EuropackEDMProcessor";
-    private final ExecutorService exe;
-    private final List<String> filter;
+    // parse -> filter -> serialize -> write
+    private final Stage parseStage;
+    private final Stage filterStage;
+    private final Stage serializeStage;
+    private final Stage writeStage;
+    private final FilterChainRegistry filterChains;
+    // null, if the filters work on the DOM
+    private final ThreadLocal<StreamingFilterEngine> engines;
     private final List<SinkInterface> sinks;
     private int addedJobs, processedJobs;
     private boolean canceled;
@@ -55,19 +63,24 @@ public class EuropackFilterProcessor {
 
     public EuropackFilterProcessor(String cacheId, List<String> filter, List<SinkInterface> sinks) {
         this.threads = Integer.getInteger("europack.processor.threads", Runtime.getRuntime().availableProcessors());
-        this.queueCapacity = Integer.getInteger("europack.processor.queueSize", Math.max(threads * 2, 64));
-        final BlockingQueue<Runnable> workQueue = new ArrayBlockingQueue<>(queueCapacity);
-        this.exe = new ThreadPoolExecutor(
-                threads,
-                threads,
-                30L,
-                TimeUnit.SECONDS,
-                workQueue,
-                new AppThreadFactory(CACHED_POOL),
-                new ThreadPoolExecutor.CallerRunsPolicy());
-        LOG.info("Processor threads='{}', queueCapacity='{}'", threads, queueCapacity);
+        // Jobs are added by the OkHttp callbacks, which must never run them
+        // (no CallerRunsPolicy) nor block. The queue of the first stage is
+        // not bounded itself: the flow control bounds the jobs between
+        // source and sink and makes the source wait, if the stages fall
+        // behind.
+        this.parseStage = new Stage(CACHED_POOL, "parse", threads, false, false);
+        this.filterStage = new Stage(CACHED_POOL, "filter", threads, true, false);
+        this.serializeStage = new Stage(CACHED_POOL, "serialize", Math.max(1, threads / 2), true, false);
+        this.writeStage = new Stage(CACHED_POOL, "write", Math.max(1, threads / 2), true, ThreadMode.get() == ThreadMode.VIRTUAL);
+        this.handoffCapacity = Integer.getInteger("europack.processor.handoffSize", Math.max(threads * 2, 64) + threads);
+        this.inMemory = new AtomicInteger();
+        this.flow = new FlowControl();
+        LOG.info("Processor threads='{}', handoffCapacity='{}'", threads, handoffCapacity);
+        LOG.info("Processor backlog {}", flow);
         this.cacheId = cacheId;
-        this.filter = filter;
+        this.filterChains = new FilterChainRegistry(filter);
+        this.engines = StreamingFilterEngine.isEnabled() ? ThreadLocal.withInitial(StreamingFilterEngine::new) : null;
+        LOG.info("Processor engine='{}'", filterChains.isEmpty() ? "pass-through" : engines == null ? "dom" : "stax");
         this.addedJobs = 0;
         this.processedJobs = 0;
         this.errors = 0;
@@ -80,15 +93,47 @@ public class EuropackFilterProcessor {
         this.processedJobs = 0;
         this.errors = 0;
         this.canceled = false;
+        this.inMemory.set(0);
     }
 
-    public synchronized void addJob(String id) {
+    /**
+     * @return backpressure between the ID source and this processor; every
+     * job gives back its permit when done
+     */
+    public FlowControl getFlowControl() {
+        return flow;
+    }
+
+    /**
+     * Adds a downloaded document. It is handed over to the worker in memory;
+     * only if the processor falls behind, it is spilled to the cache.
+     *
+     * @param ed the document
+     */
+    public void addJob(EuropackDoc ed) {
+        if (inMemory.incrementAndGet() <= handoffCapacity) {
+            final int bytes = ed.getDataLength();
+            flow.addBytes(bytes);
+            addJob(ed.getId(), ed, bytes);
+        } else {
+            inMemory.decrementAndGet();
+            CacheManager.getInstance().put(cacheId, ed);
+            addJob(ed.getId(), null, 0);
+        }
+    }
+
+    private synchronized void addJob(String id, EuropackDoc ed, int bytes) {
         if (canceled) {
+            if (ed != null) {
+                inMemory.decrementAndGet();
+            }
+            flow.release(bytes);
             return;
         }
 
         try {
-            exe.submit(new MyRunnable(id));
+            final Job job = new Job(id, ed, bytes);
+            parseStage.execute(job::parse);
             // final Future handler = exe.submit(new MyRunnable(id));
             // cancel after 10 Sek
             // exe.schedule(new Runnable() {
@@ -99,6 +144,12 @@ public class EuropackFilterProcessor {
             // }, 10, TimeUnit.SECONDS);
             ++addedJobs;
         } catch (Exception ex) {
+            if (ed != null) {
+                inMemory.decrementAndGet();
+            }
+            flow.release(bytes);
+            CacheManager.getInstance().addError(cacheId, id, ErrorRegistry.Category.FILTER);
+            incErrors();
             LOG.error(FILE_MARKER, "{}: Cannot filter item. {}", id, ex.getMessage(), ex);
         }
         if (addedJobs % 1000 == 0) {
@@ -107,40 +158,135 @@ public class EuropackFilterProcessor {
     }
 
     public void dispose() {
+        for (Stage stage : List.of(parseStage, filterStage, serializeStage, writeStage)) {
+            stage.shutdown(10, TimeUnit.SECONDS);
+        }
         for (SinkInterface sink : sinks) {
             sink.dispose();
         }
-        exe.shutdown();
-        try {
-            if (!exe.awaitTermination(10, TimeUnit.SECONDS)) {
-                LOG.warn("Processor did not terminate in time; forcing shutdownNow()");
-                exe.shutdownNow();
-            }
-        } catch (InterruptedException ie) {
-            Thread.currentThread().interrupt();
-            exe.shutdownNow();
+        for (Stage stage : List.of(parseStage, filterStage, serializeStage, writeStage)) {
+            stage.logStatistics();
         }
+        XslTemplatesCache.getInstance().logStatistics();
+        CacheManager.getInstance().logStatistics();
+    }
+
+    /**
+     * @return true, if no filter has been selected: the documents go to the
+     * sinks as downloaded, without being parsed
+     */
+    public boolean isPassThrough() {
+        return filterChains.isEmpty();
     }
 
     public synchronized boolean isDone() {
         return addedJobs <= processedJobs;
     }
 
-    private class MyRunnable implements Runnable {
+    /**
+     * A document on its way through the stages. Every stage hands it to the
+     * next one or ends it; {@link #end()} is called exactly once.
+     */
+    private class Job {
 
         private final String id;
+        // null, if the document is in the cache
+        private final EuropackDoc doc;
+        // accounted at the flow control
+        private final int bytes;
+        private EuropackDoc ed;
 
-        public MyRunnable(String id) {
+        public Job(String id, EuropackDoc doc, int bytes) {
             this.id = id;
+            this.doc = doc;
+            this.bytes = bytes;
+        }
+
+        void parse() {
+            if (step(this::fetch, ErrorRegistry.Category.PARSE)) {
+                handOn(filterStage, this::filter);
+            }
+        }
+
+        void filter() {
+            if (step(this::applyFilters, ErrorRegistry.Category.FILTER)) {
+                handOn(serializeStage, this::serialize);
+            }
+        }
+
+        void serialize() {
+            if (step(this::toBytes, ErrorRegistry.Category.SAVE)) {
+                handOn(writeStage, this::write);
+            }
+        }
+
+        void write() {
+            if (step(this::save, ErrorRegistry.Category.SAVE)) {
+                end();
+            }
+        }
+
+        /**
+         * Ends the job on failure, even on an Error; a StackOverflowError
+         * (deep XSLT/XPath recursion on odd records) is an error of the item.
+         *
+         * @param category error category of the step
+         * @return true, if the job goes on; otherwise it has been ended
+         */
+        private boolean step(BooleanSupplier s, ErrorRegistry.Category category) {
+            boolean goOn = false;
+            try {
+                goOn = !isCanceled() && s.getAsBoolean();
+            } catch (RuntimeException | StackOverflowError ex) {
+                CacheManager.getInstance().addError(cacheId, id, category);
+                incErrors();
+                LOG.error(FILE_MARKER, "{}: Cannot process item. {}", id, ex.getMessage(), ex);
+            } finally {
+                if (!goOn) {
+                    end();
+                }
+            }
+            return goOn;
         }
 
-        @Override
-        public void run() {
-            if (isCanceled()) {
-                return;
+        private void handOn(Stage stage, Runnable next) {
+            try {
+                stage.execute(next);
+            } catch (RejectedExecutionException ex) {
+                LOG.error(FILE_MARKER, "{}: Processor stopped. {}", id, ex.getMessage());
+                end();
             }
-            final EuropackDoc ed = CacheManager.getInstance().get(cacheId, id);
+        }
 
+        /**
+         * Gets the document from the cache, if it has been spilled, and
+         * builds the DOM, if the filters need one.
+         */
+        private boolean fetch() {
+            ed = doc != null ? doc : CacheManager.getInstance().get(cacheId, id);
+            if (ed == null) {
+                // spilled, but evicted from the cache before being processed
+                CacheManager.getInstance().addError(cacheId, id, ErrorRegistry.Category.PARSE);
+                incErrors();
+                LOG.error(FILE_MARKER, "{}: Not in the cache any more", id);
+                return false;
+            }
+            if (engines == null && !filterChains.isEmpty()) {
+                try {
+                    // the downloader keeps the raw bytes, the DOM is built here
+                    ed.getDoc();
+                } catch (IllegalStateException ex) {
+                    ed.setStatus(EuropackDoc.Status.INVALID_XMLPARSE);
+                    CacheManager.getInstance().addError(cacheId, ed.getId(), ErrorRegistry.Category.PARSE);
+                    incErrors();
+                    LOG.error(FILE_MARKER, "{}: {}", id, ex.getMessage());
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean applyFilters() {
             // debugging (1%)
             // if (new Random().nextInt(100) < 1) {
             // ed.setStatus(EuropackDoc.Status.INVALID_FILTER_FAILED);
@@ -148,56 +294,91 @@ public class EuropackFilterProcessor {
             // incErrors();
             // LOG.error("{}: Statistical sort out for debugging", id);
             // }
-            final List<FilterInterface> filterInstance = new ArrayList<>();
+            List<FilterInterface> filterInstance;
             try {
-                for (String f : filter) {
-                    final Class<?> act = Class.forName("de.ddb.labs.europack.filter." + f);
-                    final Constructor<?> constr = act.getConstructor();
-                    final FilterInterface fi = (FilterInterface) constr.newInstance();
-                    filterInstance.add(fi);
-                }
-            } catch (ClassNotFoundException | NoSuchMethodException | InstantiationException | IllegalAccessException
-                    | InvocationTargetException ex) {
+                filterInstance = filterChains.getChain();
+            } catch (Exception ex) {
+                filterInstance = List.of();
+                ed.setStatus(EuropackDoc.Status.INVALID_FILTER_FAILED);
+                CacheManager.getInstance().addError(cacheId, ed.getId(), ErrorRegistry.Category.FILTER);
+                incErrors();
                 LOG.error(FILE_MARKER, "{}: Cannot instantiate filters. {}", id, ex.getMessage(), ex);
             }
 
-            for (FilterInterface f : filterInstance) {
-                if (isCanceled()) {
-                    return;
-                }
+            if (engines != null) {
                 try {
-                    if (ed.getStatus() == EuropackDoc.Status.VALID) {
-                        f.init();
-                        f.filter(ed);
-                    }
-                } catch (Exception | StackOverflowError ex) {
+                    engines.get().filter(ed, filterInstance);
+                } catch (StreamingFilterEngine.FilterException ex) {
                     ed.setStatus(EuropackDoc.Status.INVALID_FILTER_FAILED);
-                    CacheManager.getInstance().addError(cacheId, ed.getId());
+                    CacheManager.getInstance().addError(cacheId, ed.getId(), ErrorRegistry.Category.FILTER);
                     incErrors();
-                    LOG.error(FILE_MARKER, "{}: {} said {}", id, f.getName(), ex.getMessage());
+                    LOG.error(FILE_MARKER, "{}: {} said {}", id, ex.getFilterName(), ex.getMessage());
                 }
-            }
-            if (ed.getStatus() == EuropackDoc.Status.VALID) {
-                for (SinkInterface sink : sinks) {
+            } else {
+                for (FilterInterface f : filterInstance) {
                     if (isCanceled()) {
-                        return;
+                        return false;
                     }
                     try {
-                        sink.filter(ed);
+                        if (ed.getStatus() == EuropackDoc.Status.VALID) {
+                            f.filter(ed);
+                        }
                     } catch (Exception | StackOverflowError ex) {
-                        ed.setStatus(EuropackDoc.Status.INVALID_SAVE);
-                        CacheManager.getInstance().addError(cacheId, ed.getId());
+                        ed.setStatus(EuropackDoc.Status.INVALID_FILTER_FAILED);
+                        CacheManager.getInstance().addError(cacheId, ed.getId(), ErrorRegistry.Category.FILTER);
                         incErrors();
-                        LOG.error(FILE_MARKER, "{}: {} said {}", id, sink.getName(), ex.getMessage());
+                        LOG.error(FILE_MARKER, "{}: {} said {}", id, f.getName(), ex.getMessage());
                     }
                 }
             }
-            // After processing (success or error), evict the document from cache to free memory
+            return ed.getStatus() == EuropackDoc.Status.VALID;
+        }
+
+        /**
+         * Serializes a DOM once for all sinks.
+         */
+        private boolean toBytes() {
             try {
-                CacheManager.getInstance().remove(cacheId, id);
-            } catch (Exception ignore) {
+                ed.setData(ed.getData());
+            } catch (TransformerException ex) {
+                ed.setStatus(EuropackDoc.Status.INVALID_SAVE);
+                CacheManager.getInstance().addError(cacheId, ed.getId(), ErrorRegistry.Category.SAVE);
+                incErrors();
+                LOG.error(FILE_MARKER, "{}: Cannot serialize item. {}", id, ex.getMessage());
+                return false;
+            }
+            return true;
+        }
+
+        private boolean save() {
+            for (SinkInterface sink : sinks) {
+                if (isCanceled()) {
+                    return false;
+                }
+                try {
+                    sink.filter(ed);
+                } catch (Exception | StackOverflowError ex) {
+                    ed.setStatus(EuropackDoc.Status.INVALID_SAVE);
+                    CacheManager.getInstance().addError(cacheId, ed.getId(), ErrorRegistry.Category.SAVE);
+                    incErrors();
+                    LOG.error(FILE_MARKER, "{}: {} said {}", id, sink.getName(), ex.getMessage());
+                }
+            }
+            return true;
+        }
+
+        private void end() {
+            if (doc != null) {
+                inMemory.decrementAndGet();
+            } else {
+                // After processing (success or error), evict the document from cache to free memory
+                try {
+                    CacheManager.getInstance().remove(cacheId, id);
+                } catch (Exception ignore) {
+                }
             }
             incProcessedJobs();
+            flow.release(bytes);
         }
     }
 
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2019, 2025 Michael Büchner <m.buechner@dnb.de>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.labs.europack.processor;
+
+import de.ddb.labs.europack.filter.FilterInterface;
+import de.ddb.labs.europack.filter.FusedXslFilter;
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
+
+/**
+ * Resolves the filter classes of a run once and hands out one initialized
+ * filter chain per worker thread. The chain of a thread is built on first use
+ * and reused for every document that thread processes.
+ * <p>
+ * Consecutive suppression stylesheets (see {@link FusedXslFilter}) are fused
+ * into one filter. This does not change the result, as they only remove nodes
+ * and do not look at the ones removed by the others. Any other filter ends a
+ * group of fused filters: a Java filter reads the document (e.g.
+ * HierarchieFilter decides by <code>ddb:hierarchyType</code>, which
+ * DdbHierarchyTypeFilter removes), so a suppression must not be moved in
+ * front of it.
+ *
+ * @author Michael Büchner <m.buechner@dnb.de>
+ */
+public class FilterChainRegistry {
+
+    private final static Logger LOG = LoggerFactory.getLogger(FilterChainRegistry.class);
+    private static final Marker FILE_MARKER = MarkerFactory.getMarker("FILE");
+    private static final String FILTER_PACKAGE = "de.ddb.labs.europack.filter.";
+    private final List<FilterFactory> factories;
+    private final ThreadLocal<List<FilterInterface>> chains;
+
+    private interface FilterFactory {
+
+        FilterInterface create() throws Exception;
+    }
+
+    /**
+     *
+     * @param filter names of the filters (simple class names) in the order they
+     * have to be applied
+     */
+    public FilterChainRegistry(List<String> filter) {
+        this.factories = new ArrayList<>();
+        this.chains = new ThreadLocal<>();
+        int resolved = 0;
+        List<String> fused = null;
+        for (String f : filter) {
+            final Constructor<? extends FilterInterface> constr;
+            try {
+                final Class<? extends FilterInterface> act = Class.forName(FILTER_PACKAGE + f).asSubclass(FilterInterface.class);
+                constr = act.getConstructor();
+            } catch (ClassNotFoundException | ClassCastException | NoSuchMethodException ex) {
+                LOG.error(FILE_MARKER, "Cannot resolve filter {}. {}", f, ex.getMessage(), ex);
+                continue;
+            }
+            ++resolved;
+            if (FusedXslFilter.isFusable(f)) {
+                if (fused == null) {
+                    fused = new ArrayList<>();
+                    factories.add(fusedFactory(fused, constr));
+                }
+                fused.add(f);
+                continue;
+            }
+            factories.add(constr::newInstance);
+            fused = null;
+        }
+        LOG.info("Filter chain resolved: {} of {} filter(s) in {} step(s)", resolved, filter.size(), factories.size());
+    }
+
+    /**
+     * Creates the factory of a group of fused filters. The group is still
+     * filled while the filter list is resolved; a group of one filter is not
+     * fused at all, unless the streaming engine needs the fused filter.
+     */
+    private static FilterFactory fusedFactory(List<String> fused, Constructor<? extends FilterInterface> first) {
+        return () -> fused.size() == 1 && !StreamingFilterEngine.isEnabled() ? first.newInstance() : new FusedXslFilter(fused);
+    }
+
+    /**
+     * @return true, if there is no filter at all (pass-through)
+     */
+    public boolean isEmpty() {
+        return factories.isEmpty();
+    }
+
+    /**
+     * Returns the filter chain of the calling thread. The chain is instantiated
+     * and initialized on the first call of a thread only.
+     *
+     * @return initialized filters in the order they have to be applied
+     * @throws Exception if a filter cannot be instantiated or initialized
+     */
+    public List<FilterInterface> getChain() throws Exception {
+        List<FilterInterface> chain = chains.get();
+        if (chain == null) {
+            final List<FilterInterface> newChain = new ArrayList<>(factories.size());
+            for (FilterFactory factory : factories) {
+                final FilterInterface fi = factory.create();
+                fi.init();
+                newChain.add(fi);
+            }
+            chain = Collections.unmodifiableList(newChain);
+            chains.set(chain);
+            LOG.debug("Filter chain initialized for thread {}", Thread.currentThread().getName());
+        }
+        return chain;
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2019, 2025 Michael Büchner <m.buechner@dnb.de>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.labs.europack.processor;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Backpressure between the ID source and the processor. A producer takes a
+ * permit for every record before it is downloaded and blocks, while there
+ * are too many records or bytes between download and sink. The permit is
+ * given back when the record has been processed or has failed; a blocked
+ * producer is woken up right then. When all permits are back, a run has
+ * drained; {@link #awaitIdle(BooleanSupplier)} waits for that and is woken
+ * up by every release.
+ * <p>
+ * Limits: <code>europack.processor.backlog</code> (records, default 1024)
+ * and <code>europack.processor.backlogBytes</code> (bytes of the downloaded
+ * documents held in memory, default 0 for no limit). Waiting for the drain
+ * gives up, if no permit has come back for
+ * <code>europack.processor.idleTimeout</code> seconds (default 300), so a
+ * lost permit cannot hang a run.
+ *
+ * @author Michael Büchner <m.buechner@dnb.de>
+ */
+public class FlowControl {
+
+    private final static Logger LOG = LoggerFactory.getLogger(FlowControl.class);
+
+    // to check for cancellation while waiting
+    private static final long CHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+    private final int maxRecords;
+    private final long maxBytes;
+    private final long stallNanos;
+    private final ReentrantLock lock;
+    private final Condition released;
+    private int records;
+    private long bytes;
+
+    public FlowControl() {
+        this(Integer.getInteger("europack.processor.backlog", 1024), Long.getLong("europack.processor.backlogBytes", 0L));
+    }
+
+    /**
+     * @param maxRecords maximum number of records
+     * @param maxBytes maximum number of bytes or 0 for no limit
+     */
+    public FlowControl(int maxRecords, long maxBytes) {
+        this(maxRecords, maxBytes, TimeUnit.SECONDS.toNanos(Math.max(1, Long.getLong("europack.processor.idleTimeout", 300L))));
+    }
+
+    /**
+     * @param maxRecords maximum number of records
+     * @param maxBytes maximum number of bytes or 0 for no limit
+     * @param stallNanos time without any permit given back, after which
+     * {@link #awaitIdle(BooleanSupplier)} gives up
+     */
+    public FlowControl(int maxRecords, long maxBytes, long stallNanos) {
+        this.maxRecords = Math.max(1, maxRecords);
+        this.maxBytes = Math.max(0, maxBytes);
+        this.stallNanos = Math.max(1, stallNanos);
+        this.lock = new ReentrantLock();
+        this.released = lock.newCondition();
+    }
+
+    /**
+     * Takes a permit for a record, waits for one if necessary.
+     *
+     * @param canceled stops waiting, if true
+     * @return true, if a permit was taken; false, if canceled or interrupted
+     */
+    public boolean acquire(BooleanSupplier canceled) {
+        lock.lock();
+        try {
+            while (records >= maxRecords || (maxBytes > 0 && bytes >= maxBytes)) {
+                if (canceled.getAsBoolean()) {
+                    return false;
+                }
+                released.awaitNanos(CHECK_NANOS);
+            }
+            if (canceled.getAsBoolean()) {
+                return false;
+            }
+            ++records;
+            return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until every permit has been given back, i.e. every record taken
+     * has been processed or has failed. Gives up with a warning, if no permit
+     * has come back for the idle timeout. The caller must not treat a run as
+     * complete, if this returns false.
+     *
+     * @param canceled stops waiting, if true
+     * @return true, if idle; false, if canceled, interrupted or stalled
+     */
+    public boolean awaitIdle(BooleanSupplier canceled) {
+        lock.lock();
+        try {
+            long lastRecords = records;
+            long lastProgress = System.nanoTime();
+            while (records > 0) {
+                if (canceled.getAsBoolean()) {
+                    return false;
+                }
+                if (records != lastRecords) {
+                    lastRecords = records;
+                    lastProgress = System.nanoTime();
+                } else if (System.nanoTime() - lastProgress >= stallNanos) {
+                    LOG.warn("{} record(s) still hold a permit, but none has come back for {} s; not waiting any longer",
+                            records, TimeUnit.NANOSECONDS.toSeconds(stallNanos));
+                    return false;
+                }
+                released.awaitNanos(CHECK_NANOS);
+            }
+            return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Accounts the bytes of a record which are held in memory now.
+     *
+     * @param n
+     */
+    public void addBytes(long n) {
+        lock.lock();
+        try {
+            bytes += n;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gives back the permit of a record.
+     *
+     * @param n bytes of the record added with {@link #addBytes(long)}
+     * @throws IllegalStateException if no permit is held or fewer bytes have
+     * been added, i.e. a record has been released twice
+     */
+    public void release(long n) throws IllegalStateException {
+        lock.lock();
+        try {
+            if (records < 1 || n > bytes) {
+                throw new IllegalStateException("Release of " + n + " byte(s) without a permit held (records=" + records + ", bytes=" + bytes + ")");
+            }
+            --records;
+            bytes -= n;
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return number of records holding a permit
+     */
+    public int getRecords() {
+        lock.lock();
+        try {
+            return records;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return bytes of the records held in memory
+     */
+    public long getBytes() {
+        lock.lock();
+        try {
+            return bytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "records='" + maxRecords + "', bytes='" + (maxBytes == 0 ? "unlimited" : maxBytes) + "'";
+    }
+}
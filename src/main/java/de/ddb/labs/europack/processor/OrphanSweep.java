@@ -0,0 +1,131 @@
+/*
+ * Copyright 2019, 2025 Michael Büchner <m.buechner@dnb.de>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.labs.europack.processor;
+
+import de.ddb.labs.europack.filter.StreamFilterInterface;
+import de.ddb.labs.europack.filter.StreamPass;
+import de.ddb.labs.europack.filter.StreamPath;
+import java.util.HashSet;
+import java.util.Set;
+import javax.xml.stream.events.StartElement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Finds the contextual resources which a
+ * {@link StreamFilterInterface#isCascading() cascading} filter orphans in a
+ * pass of the streaming engine. It builds the reference graph of the events
+ * the filter gets twice: as it was and without the properties the filter
+ * drops. Resources reachable from edm:ProvidedCHO or ore:Aggregation in the
+ * first one, but not in the second one, are orphans; {@link #pass(java.util.Set)}
+ * drops them.
+ * <p>
+ * This is the streaming counterpart of
+ * {@link ResourceIndex#removeReference(org.w3c.dom.Node)}.
+ *
+ * @author Michael Büchner <m.buechner@dnb.de>
+ */
+class OrphanSweep {
+
+    private final static Logger LOG = LoggerFactory.getLogger(OrphanSweep.class);
+    private final ReferenceGraph before;
+    private final ReferenceGraph after;
+    // depth of the first rdf:RDF while inside, 0 before and -1 after it
+    private int rdfDepth;
+    // rdf:about of the current resource on top level
+    private String about;
+    private boolean aboutDropped;
+
+    OrphanSweep() {
+        this.before = new ReferenceGraph();
+        this.after = new ReferenceGraph();
+    }
+
+    /**
+     * @param path
+     * @param e an element the filter got
+     * @param dropped true, if the filter did not keep it
+     */
+    void startElement(StreamPath path, StartElement e, boolean dropped) {
+        if (rdfDepth == 0 && StreamPath.is(e.getName(), "rdf", "RDF")) {
+            rdfDepth = path.depth();
+        } else if (rdfDepth > 0 && path.depth() == rdfDepth + 1) {
+            about = StreamPath.attribute(e, "rdf", "about");
+            aboutDropped = dropped;
+            if (about != null) {
+                final boolean root = StreamPath.is(e.getName(), "edm", "ProvidedCHO") || StreamPath.is(e.getName(), "ore", "Aggregation");
+                before.addResource(about, root);
+                if (!dropped) {
+                    after.addResource(about, root);
+                }
+            }
+        } else if (rdfDepth > 0 && about != null) {
+            final String resource = StreamPath.attribute(e, "rdf", "resource");
+            if (resource != null) {
+                before.addReference(about, resource);
+                if (!dropped && !aboutDropped) {
+                    after.addReference(about, resource);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param path the element being closed
+     */
+    void endElement(StreamPath path) {
+        if (path.depth() == rdfDepth) {
+            rdfDepth = -1;
+        } else if (path.depth() == rdfDepth + 1) {
+            about = null;
+        }
+    }
+
+    /**
+     * @return URIs of the resources the filter orphaned
+     */
+    Set<String> getOrphans() {
+        final Set<String> orphans = before.getReachable();
+        orphans.removeAll(after.getReachable());
+        return orphans;
+    }
+
+    /**
+     * @param orphans URIs of the resources to drop
+     * @return pass dropping the resources on top level of rdf:RDF
+     */
+    static StreamPass pass(Set<String> orphans) {
+        final Set<String> uris = new HashSet<>(orphans);
+        return new StreamPass() {
+            private int removed;
+
+            @Override
+            public Action startElement(StreamPath path, StartElement e) {
+                if (StreamPath.is(path.parent(), "rdf", "RDF") && uris.contains(StreamPath.attribute(e, "rdf", "about"))) {
+                    ++removed;
+                    return Action.DROP;
+                }
+                return Action.KEEP;
+            }
+
+            @Override
+            public StreamPass endDocument(EuropackDoc ed) {
+                LOG.debug("{}: {} orphaned resource(s) removed", ed.getId(), removed);
+                return null;
+            }
+        };
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2019, 2025 Michael Büchner <m.buechner@dnb.de>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.labs.europack.processor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * Reference graph of an EDM record. Nodes are the resources on top level of
+ * <code>rdf:RDF</code>, edges lead from a resource to every resource its
+ * properties point to with <code>rdf:resource</code>. The graph is built in
+ * one pass over the document.
+ *
+ * @author Michael Büchner <m.buechner@dnb.de>
+ */
+public class ReferenceGraph {
+
+    private static final String RDF = EdmNamespaces.getNsUri().get("rdf");
+    private final Map<String, List<Element>> resources;
+    private final Map<String, Set<String>> references;
+    private final Set<String> roots;
+
+    /**
+     * Creates an empty graph, to be filled with
+     * {@link #addResource(java.lang.String, boolean)} and
+     * {@link #addReference(java.lang.String, java.lang.String)}, e.g. while
+     * streaming a document.
+     */
+    public ReferenceGraph() {
+        this.resources = new HashMap<>();
+        this.references = new HashMap<>();
+        this.roots = new HashSet<>();
+    }
+
+    /**
+     * Builds the reference graph of a document.
+     *
+     * @param doc EDM record, with or without wrapper around
+     * <code>rdf:RDF</code>
+     * @return the graph
+     */
+    public static ReferenceGraph of(Document doc) {
+        final ReferenceGraph graph = new ReferenceGraph();
+        final NodeList rdf = doc.getElementsByTagNameNS(RDF, "RDF");
+        if (rdf.getLength() < 1) {
+            return graph;
+        }
+        final NodeList nl = rdf.item(0).getChildNodes();
+        for (int i = 0; i < nl.getLength(); ++i) {
+            final Node n = nl.item(i);
+            if (n.getNodeType() != Node.ELEMENT_NODE || !((Element) n).hasAttributeNS(RDF, "about")) {
+                continue;
+            }
+            graph.add((Element) n);
+        }
+        return graph;
+    }
+
+    private void add(Element resource) {
+        final String about = resource.getAttributeNS(RDF, "about");
+        resources.computeIfAbsent(about, k -> new ArrayList<>(1)).add(resource);
+        if (isRoot(resource)) {
+            roots.add(about);
+        }
+        final Set<String> refs = references.computeIfAbsent(about, k -> new HashSet<>());
+        final NodeList nl = resource.getElementsByTagNameNS("*", "*");
+        for (int i = 0; i < nl.getLength(); ++i) {
+            final Element e = (Element) nl.item(i);
+            if (e.hasAttributeNS(RDF, "resource")) {
+                refs.add(e.getAttributeNS(RDF, "resource"));
+            }
+        }
+    }
+
+    /**
+     * Adds a resource on top level without its element.
+     *
+     * @param about value of <code>rdf:about</code>
+     * @param root true for edm:ProvidedCHO and ore:Aggregation
+     */
+    public void addResource(String about, boolean root) {
+        resources.computeIfAbsent(about, k -> new ArrayList<>(1));
+        references.computeIfAbsent(about, k -> new HashSet<>());
+        if (root) {
+            roots.add(about);
+        }
+    }
+
+    /**
+     * Adds a reference of a property of a resource.
+     *
+     * @param about value of <code>rdf:about</code> of the resource
+     * @param resource value of <code>rdf:resource</code> of the property
+     */
+    public void addReference(String about, String resource) {
+        references.computeIfAbsent(about, k -> new HashSet<>()).add(resource);
+    }
+
+    private static boolean isRoot(Element e) {
+        return (EdmNamespaces.getNsUri().get("edm").equals(e.getNamespaceURI()) && "ProvidedCHO".equals(e.getLocalName()))
+                || (EdmNamespaces.getNsUri().get("ore").equals(e.getNamespaceURI()) && "Aggregation".equals(e.getLocalName()));
+    }
+
+    /**
+     * @return URIs of all resources reachable from edm:ProvidedCHO and
+     * ore:Aggregation (including these)
+     */
+    public Set<String> getReachable() {
+        final Set<String> reachable = new HashSet<>(roots);
+        final Deque<String> queue = new ArrayDeque<>(roots);
+        while (!queue.isEmpty()) {
+            final Set<String> refs = references.get(queue.poll());
+            if (refs == null) {
+                continue;
+            }
+            for (String ref : refs) {
+                if (resources.containsKey(ref) && reachable.add(ref)) {
+                    queue.add(ref);
+                }
+            }
+        }
+        return reachable;
+    }
+
+    /**
+     * @param about value of <code>rdf:about</code>
+     * @return the resources on top level with the URI
+     */
+    public List<Element> getResources(String about) {
+        final List<Element> list = resources.get(about);
+        return list == null ? List.of() : list;
+    }
+}
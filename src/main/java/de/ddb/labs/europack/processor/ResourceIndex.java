@@ -0,0 +1,216 @@
+/*
+ * Copyright 2019, 2025 Michael Büchner <m.buechner@dnb.de>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.labs.europack.processor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.xml.namespace.QName;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * Index of all resources (elements with <code>rdf:about</code>) of a document,
+ * by URI and by type. It is built once per document (see
+ * {@link EuropackDoc#getIndex()}) and shared by all filters of a chain, so
+ * looking up a contextual resource does not scan the whole document. A URI is
+ * a plain map key, so there is no XPath expression to build or to quote per
+ * URI (e.g. for URIs containing an apostrophe).
+ * <p>
+ * Filters should remove nodes with {@link #remove(org.w3c.dom.Node)} to keep
+ * the index up to date. Nodes removed otherwise are not returned either, since
+ * all lookups skip elements which are no longer part of the document.
+ * <p>
+ * A filter dropping a property together with the contextual resource it
+ * points to (and the resources only reachable through that one) removes it
+ * with {@link #removeReference(org.w3c.dom.Node)}. The orphaned resources are
+ * removed in one {@link #sweep()}, which {@link EuropackDoc} runs, when the
+ * filter sets the document again or the document is serialized. The
+ * streaming engine does the same for a
+ * {@link de.ddb.labs.europack.filter.StreamFilterInterface#isCascading() cascading}
+ * filter.
+ *
+ * @author Michael Büchner <m.buechner@dnb.de>
+ */
+public class ResourceIndex {
+
+    private static final String RDF = EdmNamespaces.getNsUri().get("rdf");
+    private final Document doc;
+    private final Map<String, List<Element>> byAbout;
+    private final Map<QName, List<Element>> byType;
+    // resources reachable before the first removeReference() since the last
+    // sweep, null if there is nothing to sweep
+    private Set<String> reachable;
+
+    /**
+     *
+     * @param doc document to index
+     */
+    public ResourceIndex(Document doc) {
+        this.doc = doc;
+        this.byAbout = new HashMap<>();
+        this.byType = new HashMap<>();
+        final NodeList nl = doc.getElementsByTagNameNS("*", "*");
+        for (int i = 0; i < nl.getLength(); ++i) {
+            final Element e = (Element) nl.item(i);
+            if (e.hasAttributeNS(RDF, "about")) {
+                byAbout.computeIfAbsent(e.getAttributeNS(RDF, "about"), k -> new ArrayList<>(1)).add(e);
+                byType.computeIfAbsent(typeOf(e), k -> new ArrayList<>()).add(e);
+            }
+        }
+    }
+
+    /**
+     * @return the indexed document
+     */
+    public Document getDocument() {
+        return doc;
+    }
+
+    /**
+     * @param about value of <code>rdf:about</code>
+     * @return all resources with the URI in document order
+     */
+    public List<Element> getByAbout(String about) {
+        return attached(byAbout.get(about));
+    }
+
+    /**
+     * @param about value of <code>rdf:about</code>
+     * @param ns namespace URI of the type
+     * @param localName local name of the type, e.g. <code>Agent</code>
+     * @return all resources of the type with the URI in document order
+     */
+    public List<Element> getByAbout(String about, String ns, String localName) {
+        final List<Element> list = getByAbout(about);
+        list.removeIf(e -> !ns.equals(e.getNamespaceURI()) || !localName.equals(e.getLocalName()));
+        return list;
+    }
+
+    /**
+     * @param ns namespace URI of the type
+     * @param localName local name of the type, e.g. <code>Agent</code>
+     * @return all resources of the type in document order
+     */
+    public List<Element> getByType(String ns, String localName) {
+        return attached(byType.get(new QName(ns, localName)));
+    }
+
+    /**
+     * Removes a node from its parent and all resources within it from the
+     * index.
+     *
+     * @param node node to remove
+     */
+    public void remove(Node node) {
+        if (node.getParentNode() != null) {
+            node.getParentNode().removeChild(node);
+        }
+        if (node.getNodeType() != Node.ELEMENT_NODE) {
+            return;
+        }
+        final Element e = (Element) node;
+        unregister(e);
+        final NodeList nl = e.getElementsByTagNameNS("*", "*");
+        for (int i = 0; i < nl.getLength(); ++i) {
+            unregister((Element) nl.item(i));
+        }
+    }
+
+    /**
+     * Removes a property pointing to a contextual resource
+     * (<code>rdf:resource</code>). Resources which are no longer reachable
+     * from edm:ProvidedCHO or ore:Aggregation afterwards are removed by the
+     * next {@link #sweep()}; resources which have not been reachable before
+     * are kept.
+     *
+     * @param property property to remove
+     */
+    public void removeReference(Node property) {
+        if (reachable == null) {
+            reachable = ReferenceGraph.of(doc).getReachable();
+        }
+        remove(property);
+    }
+
+    /**
+     * Removes the resources orphaned by
+     * {@link #removeReference(org.w3c.dom.Node)} since the last sweep.
+     *
+     * @return number of removed resources
+     */
+    public int sweep() {
+        if (reachable == null) {
+            return 0;
+        }
+        final ReferenceGraph graph = ReferenceGraph.of(doc);
+        final Set<String> stillReachable = graph.getReachable();
+        int removed = 0;
+        for (String uri : reachable) {
+            if (stillReachable.contains(uri)) {
+                continue;
+            }
+            for (Element e : graph.getResources(uri)) {
+                remove(e);
+                ++removed;
+            }
+        }
+        reachable = null;
+        return removed;
+    }
+
+    private void unregister(Element e) {
+        if (!e.hasAttributeNS(RDF, "about")) {
+            return;
+        }
+        final List<Element> about = byAbout.get(e.getAttributeNS(RDF, "about"));
+        if (about != null) {
+            about.remove(e);
+        }
+        final List<Element> type = byType.get(typeOf(e));
+        if (type != null) {
+            type.remove(e);
+        }
+    }
+
+    private List<Element> attached(List<Element> list) {
+        final List<Element> out = new ArrayList<>();
+        if (list != null) {
+            for (Element e : list) {
+                if (isAttached(e)) {
+                    out.add(e);
+                }
+            }
+        }
+        return out;
+    }
+
+    private boolean isAttached(Node n) {
+        Node p = n.getParentNode();
+        while (p != null && p != doc) {
+            p = p.getParentNode();
+        }
+        return p == doc;
+    }
+
+    private static QName typeOf(Element e) {
+        return new QName(e.getNamespaceURI() == null ? "" : e.getNamespaceURI(), e.getLocalName());
+    }
+}
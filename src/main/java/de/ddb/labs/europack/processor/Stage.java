@@ -0,0 +1,175 @@
+/*
+ * Copyright 2019, 2025 Michael Büchner <m.buechner@dnb.de>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.labs.europack.processor;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A stage of the processor: a pool of threads with a queue of its own. Pool
+ * and queue size are set by <code>europack.processor.&lt;name&gt;.threads</code>
+ * and <code>europack.processor.&lt;name&gt;.queueSize</code>.
+ * <p>
+ * Adding a task to a full queue blocks, so a slow stage slows down the stage
+ * before it. A stage without queue limit never blocks; it is fed by the
+ * OkHttp callbacks and bounded by the {@link FlowControl}. With virtual
+ * threads every task gets a thread of its own, the limit then is on the
+ * running and waiting tasks together.
+ *
+ * @author Michael Büchner <m.buechner@dnb.de>
+ */
+class Stage {
+
+    private final static Logger LOG = LoggerFactory.getLogger(Stage.class);
+    // to check for shutdown while waiting for a slot
+    private static final long CHECK_MILLIS = 500;
+    private final String name;
+    private final int threads;
+    // 0 for no limit
+    private final int queueSize;
+    private final boolean virtual;
+    private final ExecutorService exe;
+    // queued and running tasks, null for no limit
+    private final Semaphore slots;
+    private final AtomicInteger queued;
+    private final AtomicInteger peakQueued;
+    private final LongAdder tasks;
+    private final LongAdder busyNanos;
+    private final LongAdder blockedNanos;
+
+    /**
+     * @param pool prefix of the thread names
+     * @param name name of the stage
+     * @param defaultThreads number of threads, if not set by property
+     * @param bounded false for a queue without limit
+     * @param virtual true for a virtual thread per task
+     */
+    Stage(String pool, String name, int defaultThreads, boolean bounded, boolean virtual) {
+        this.name = name;
+        this.threads = Math.max(1, Integer.getInteger("europack.processor." + name + ".threads", defaultThreads));
+        this.queueSize = bounded ? Math.max(1, Integer.getInteger("europack.processor." + name + ".queueSize", Math.max(threads * 2, 64))) : 0;
+        this.virtual = virtual;
+        this.exe = virtual
+                ? ThreadMode.newVirtualThreadPerTaskExecutor(pool + "-" + name)
+                : new ThreadPoolExecutor(threads, threads, 30L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), new AppThreadFactory(pool + "-" + name));
+        this.slots = bounded ? new Semaphore(threads + queueSize) : null;
+        this.queued = new AtomicInteger();
+        this.peakQueued = new AtomicInteger();
+        this.tasks = new LongAdder();
+        this.busyNanos = new LongAdder();
+        this.blockedNanos = new LongAdder();
+        LOG.info("Processor stage '{}': threads='{}', queueSize='{}'", name, virtual ? "virtual" : threads, bounded ? queueSize : "unbounded");
+    }
+
+    /**
+     * Adds a task; waits, if the queue is full.
+     *
+     * @param task
+     * @throws RejectedExecutionException if the stage has been shut down or
+     * the thread has been interrupted while waiting
+     */
+    void execute(Runnable task) throws RejectedExecutionException {
+        if (slots != null && !slots.tryAcquire()) {
+            final long start = System.nanoTime();
+            try {
+                while (!slots.tryAcquire(CHECK_MILLIS, TimeUnit.MILLISECONDS)) {
+                    if (exe.isShutdown()) {
+                        throw new RejectedExecutionException("Processor stage '" + name + "' has been shut down");
+                    }
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException("Interrupted while waiting for processor stage '" + name + "'", ex);
+            } finally {
+                blockedNanos.add(System.nanoTime() - start);
+            }
+        }
+        peakQueued.accumulateAndGet(queued.incrementAndGet(), Math::max);
+        try {
+            exe.execute(() -> {
+                queued.decrementAndGet();
+                final long start = System.nanoTime();
+                try {
+                    task.run();
+                } finally {
+                    busyNanos.add(System.nanoTime() - start);
+                    tasks.increment();
+                    if (slots != null) {
+                        slots.release();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            queued.decrementAndGet();
+            if (slots != null) {
+                slots.release();
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Stops taking tasks and waits for the running ones.
+     *
+     * @param timeout
+     * @param unit
+     */
+    void shutdown(long timeout, TimeUnit unit) {
+        exe.shutdown();
+        try {
+            if (!exe.awaitTermination(timeout, unit)) {
+                LOG.warn("Processor stage '{}' did not terminate in time; forcing shutdownNow()", name);
+                shutdownNow();
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            shutdownNow();
+        }
+    }
+
+    // tasks dropped from the queue give their slots back, so nobody waits
+    // for them
+    private void shutdownNow() {
+        final int dropped = exe.shutdownNow().size();
+        queued.addAndGet(-dropped);
+        if (slots != null && dropped > 0) {
+            slots.release(dropped);
+        }
+        if (dropped > 0) {
+            LOG.warn("Processor stage '{}': {} queued task(s) dropped", name, dropped);
+        }
+    }
+
+    void logStatistics() {
+        final long n = tasks.sum();
+        LOG.info("Processor stage '{}': {} task(s), {} ms busy ({} ms per task, {} thread(s)), {} ms waiting for queue, {} queued at most",
+                name,
+                n,
+                TimeUnit.NANOSECONDS.toMillis(busyNanos.sum()),
+                n == 0 ? 0 : String.format("%.2f", busyNanos.sum() / 1e6 / n),
+                virtual ? "virtual" : threads,
+                TimeUnit.NANOSECONDS.toMillis(blockedNanos.sum()),
+                peakQueued.get());
+    }
+}
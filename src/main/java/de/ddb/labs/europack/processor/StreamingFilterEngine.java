@@ -0,0 +1,434 @@
+/*
+ * Copyright 2019, 2025 Michael Büchner <m.buechner@dnb.de>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.labs.europack.processor;
+
+import de.ddb.labs.europack.filter.FilterInterface;
+import de.ddb.labs.europack.filter.StreamFilterInterface;
+import de.ddb.labs.europack.filter.StreamPass;
+import de.ddb.labs.europack.filter.StreamPass.Action;
+import de.ddb.labs.europack.filter.StreamPath;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.Characters;
+import javax.xml.stream.events.Comment;
+import javax.xml.stream.events.Namespace;
+import javax.xml.stream.events.ProcessingInstruction;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Applies a filter chain to a document without building a DOM, as far as
+ * possible. Consecutive filters implementing {@link StreamFilterInterface} run
+ * together in one pass over the StAX events of the serialized document; any
+ * other filter gets the DOM (see {@link EuropackDoc#getDoc()}), which is
+ * serialized again for the next streaming filters. Filters may ask for further
+ * passes (see {@link StreamPass}); the contextual resources orphaned by
+ * {@link StreamFilterInterface#isCascading() cascading} filters are dropped in
+ * the next pass as well.
+ * <p>
+ * The engine re-serializes the bytes of a document held in memory (see
+ * {@link EuropackDoc#getData()}); it does not read from the HTTP response,
+ * because documents are handed over complete: the flow control counts their
+ * bytes and may spill them to the cache before they are filtered.
+ * <p>
+ * The engine is enabled with <code>-Deuropack.processor.engine=stax</code>.
+ * An instance must only be used by one thread.
+ *
+ * @author Michael Büchner <m.buechner@dnb.de>
+ */
+public class StreamingFilterEngine {
+
+    private final static Logger LOG = LoggerFactory.getLogger(StreamingFilterEngine.class);
+    private final XMLInputFactory inputFactory;
+    private final XMLOutputFactory outputFactory;
+    private final XMLEventFactory eventFactory;
+    private final StreamPath path;
+    private static final byte[] DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Failure of a filter, with the name of the filter.
+     */
+    public static class FilterException extends Exception {
+
+        private static final long serialVersionUID = -4410829571398211367L;
+        private final String filterName;
+
+        public FilterException(String filterName, Throwable cause) {
+            super(cause.getMessage(), cause);
+            this.filterName = filterName;
+        }
+
+        /**
+         * @return the name of the failed filter
+         */
+        public String getFilterName() {
+            return filterName;
+        }
+    }
+
+    /**
+     * State of an element in a pass
+     */
+    private static final class Frame {
+
+        // passes which got the events of the parent
+        private final int cut;
+        // passes which got the start element and get the end element
+        private final int limit;
+        private final boolean written;
+        // in-scope namespaces, only tracked until the root has been written
+        private final Map<String, String> namespaces;
+
+        private Frame(int cut, int limit, boolean written, Map<String, String> namespaces) {
+            this.cut = cut;
+            this.limit = limit;
+            this.written = written;
+            this.namespaces = namespaces;
+        }
+    }
+
+    public StreamingFilterEngine() {
+        this.inputFactory = XMLInputFactory.newInstance();
+        inputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        inputFactory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        this.outputFactory = XMLOutputFactory.newInstance();
+        this.eventFactory = XMLEventFactory.newInstance();
+        this.path = new StreamPath();
+    }
+
+    /**
+     * @return true, if the streaming engine has been chosen with
+     * <code>-Deuropack.processor.engine=stax</code>
+     */
+    public static boolean isEnabled() {
+        return "stax".equalsIgnoreCase(System.getProperty("europack.processor.engine", "dom"));
+    }
+
+    /**
+     * Applies the filters to the document. Stops as soon as the document is
+     * no longer valid.
+     *
+     * @param ed the document
+     * @param chain filters in the order they have to be applied
+     * @throws FilterException if a filter (or parsing the document) fails
+     */
+    public void filter(EuropackDoc ed, List<FilterInterface> chain) throws FilterException {
+        int i = 0;
+        while (i < chain.size() && ed.getStatus() == EuropackDoc.Status.VALID) {
+            if (chain.get(i) instanceof StreamFilterInterface) {
+                final List<StreamFilterInterface> group = new ArrayList<>();
+                while (i < chain.size() && chain.get(i) instanceof StreamFilterInterface sfi) {
+                    group.add(sfi);
+                    ++i;
+                }
+                stream(ed, group);
+            } else {
+                final FilterInterface f = chain.get(i++);
+                try {
+                    f.filter(ed);
+                } catch (Exception ex) {
+                    throw new FilterException(f.getName(), ex);
+                }
+            }
+        }
+    }
+
+    private void stream(EuropackDoc ed, List<StreamFilterInterface> group) throws FilterException {
+        final String name = group.size() == 1 ? group.get(0).getName() : StreamingFilterEngine.class.getSimpleName();
+        try {
+            byte[] data = ed.getData();
+            List<StreamPass> passes = new ArrayList<>(group);
+            while (!passes.isEmpty()) {
+                final List<StreamPass> next = new ArrayList<>();
+                data = pass(ed, data, passes, next);
+                if (data == null) {
+                    // rejected
+                    return;
+                }
+                passes = next;
+            }
+            ed.setData(data);
+        } catch (Exception ex) {
+            throw new FilterException(name, ex);
+        }
+    }
+
+    /**
+     * One pass over the document.
+     *
+     * @return the output or null, if the document has been rejected
+     */
+    private byte[] pass(EuropackDoc ed, byte[] data, List<StreamPass> passes, List<StreamPass> next) throws IOException, XMLStreamException {
+        final int n = passes.size();
+        final OrphanSweep[] sweeps = new OrphanSweep[n];
+        for (int j = 0; j < n; ++j) {
+            final StreamPass p = passes.get(j);
+            p.startDocument(ed);
+            if (p instanceof StreamFilterInterface sfi && sfi.isCascading()) {
+                sweeps[j] = new OrphanSweep();
+            }
+        }
+        path.clear();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(data.length);
+        // as the sinks write it, XMLStreamWriter cannot declare standalone
+        out.write(DECLARATION);
+        final XMLEventReader reader = inputFactory.createXMLEventReader(new ByteArrayInputStream(data));
+        final XMLStreamWriter writer = outputFactory.createXMLStreamWriter(out, "UTF-8");
+        final Deque<Frame> frames = new ArrayDeque<>();
+        // passes [0, cut) get the events, all of them means: write it
+        int cut = n;
+        boolean rootWritten = false;
+        // start element not written yet, it may be an empty one
+        StartElement open = null;
+        // whitespace not written yet, it is dropped with the next element
+        Characters whitespace = null;
+        try {
+            while (reader.hasNext()) {
+                final XMLEvent ev = reader.nextEvent();
+                switch (ev.getEventType()) {
+                    case XMLStreamConstants.START_ELEMENT: {
+                        StartElement se = ev.asStartElement();
+                        path.push(se.getName());
+                        Map<String, String> namespaces = null;
+                        if (!rootWritten) {
+                            namespaces = new HashMap<>(frames.isEmpty() ? Map.of() : frames.peek().namespaces);
+                            for (Iterator<Namespace> it = se.getNamespaces(); it.hasNext();) {
+                                final Namespace ns = it.next();
+                                namespaces.put(ns.getPrefix(), ns.getNamespaceURI());
+                            }
+                        }
+                        int newCut = cut;
+                        int limit = cut;
+                        boolean unwrap = false;
+                        for (int j = 0; j < cut; ++j) {
+                            final Action a = passes.get(j).startElement(path, se);
+                            if (sweeps[j] != null) {
+                                sweeps[j].startElement(path, se, a != Action.KEEP);
+                            }
+                            if (a == Action.DROP) {
+                                newCut = j;
+                                limit = j + 1;
+                                break;
+                            }
+                            if (a == Action.UNWRAP) {
+                                unwrap = true;
+                                limit = j + 1;
+                                break;
+                            }
+                        }
+                        final boolean write = newCut == n && !unwrap;
+                        if (write) {
+                            if (!rootWritten) {
+                                // the root declares all namespaces in scope, e.g. of a removed wrapper
+                                se = withNamespaces(se, namespaces);
+                                rootWritten = true;
+                            }
+                            for (StreamPass p : passes) {
+                                se = p.rewrite(path, se);
+                            }
+                            if (open != null) {
+                                writeStartElement(writer, open, false);
+                            }
+                            if (whitespace != null) {
+                                writer.writeCharacters(whitespace.getData());
+                            }
+                            open = se;
+                        }
+                        // no indentation for dropped elements
+                        whitespace = null;
+                        frames.push(new Frame(cut, limit, write, namespaces));
+                        cut = newCut;
+                        break;
+                    }
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                    case XMLStreamConstants.SPACE: {
+                        final Characters c = ev.asCharacters();
+                        final int limit = frames.isEmpty() ? 0 : Math.min(cut, frames.peek().limit);
+                        for (int j = 0; j < limit; ++j) {
+                            passes.get(j).characters(path, c);
+                        }
+                        if (cut == n && !frames.isEmpty() && frames.peek().written) {
+                            if (c.isWhiteSpace()) {
+                                if (whitespace != null) {
+                                    writer.writeCharacters(whitespace.getData());
+                                }
+                                whitespace = c;
+                                break;
+                            }
+                            if (open != null) {
+                                writeStartElement(writer, open, false);
+                                open = null;
+                            }
+                            if (whitespace != null) {
+                                writer.writeCharacters(whitespace.getData());
+                                whitespace = null;
+                            }
+                            if (c.isCData()) {
+                                writer.writeCData(c.getData());
+                            } else {
+                                writer.writeCharacters(c.getData());
+                            }
+                        }
+                        break;
+                    }
+                    case XMLStreamConstants.END_ELEMENT: {
+                        final Frame frame = frames.pop();
+                        for (int j = 0; j < frame.limit; ++j) {
+                            passes.get(j).endElement(path);
+                            if (sweeps[j] != null) {
+                                sweeps[j].endElement(path);
+                            }
+                        }
+                        if (frame.written) {
+                            if (open != null) {
+                                // only whitespace in between
+                                writeStartElement(writer, open, true);
+                                open = null;
+                            } else {
+                                if (whitespace != null) {
+                                    writer.writeCharacters(whitespace.getData());
+                                }
+                                writer.writeEndElement();
+                            }
+                            whitespace = null;
+                        }
+                        cut = frame.cut;
+                        path.pop();
+                        break;
+                    }
+                    case XMLStreamConstants.COMMENT:
+                    case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                        if (cut == n && (frames.isEmpty() || frames.peek().written)) {
+                            if (open != null) {
+                                writeStartElement(writer, open, false);
+                                open = null;
+                            }
+                            if (whitespace != null) {
+                                writer.writeCharacters(whitespace.getData());
+                                whitespace = null;
+                            }
+                            if (ev.getEventType() == XMLStreamConstants.COMMENT) {
+                                writer.writeComment(((Comment) ev).getText());
+                            } else {
+                                final ProcessingInstruction pi = (ProcessingInstruction) ev;
+                                writer.writeProcessingInstruction(pi.getTarget(), pi.getData());
+                            }
+                        }
+                        break;
+                    case XMLStreamConstants.END_DOCUMENT:
+                        writer.writeEndDocument();
+                        break;
+                    default:
+                        // declaration, DTD, entity references
+                        break;
+                }
+                if (ed.getStatus() != EuropackDoc.Status.VALID) {
+                    return null;
+                }
+            }
+            writer.flush();
+        } finally {
+            writer.close();
+            reader.close();
+        }
+        // first, so the passes after it do not see the orphans
+        final Set<String> orphans = new HashSet<>();
+        for (OrphanSweep sweep : sweeps) {
+            if (sweep != null) {
+                orphans.addAll(sweep.getOrphans());
+            }
+        }
+        if (!orphans.isEmpty()) {
+            next.add(OrphanSweep.pass(orphans));
+        }
+        for (StreamPass p : passes) {
+            final StreamPass follow = p.endDocument(ed);
+            if (follow != null) {
+                next.add(follow);
+            }
+        }
+        if (ed.getStatus() != EuropackDoc.Status.VALID) {
+            return null;
+        }
+        if (!rootWritten) {
+            throw new XMLStreamException("No element left in document " + ed.getId());
+        }
+        LOG.debug("{}: {} pass(es) streamed, {} -> {} bytes", ed.getId(), n, data.length, out.size());
+        return out.toByteArray();
+    }
+
+    private static void writeStartElement(XMLStreamWriter writer, StartElement se, boolean empty) throws XMLStreamException {
+        final QName name = se.getName();
+        if (empty) {
+            writer.writeEmptyElement(name.getPrefix(), name.getLocalPart(), name.getNamespaceURI());
+        } else {
+            writer.writeStartElement(name.getPrefix(), name.getLocalPart(), name.getNamespaceURI());
+        }
+        for (Iterator<Namespace> it = se.getNamespaces(); it.hasNext();) {
+            final Namespace ns = it.next();
+            if (ns.isDefaultNamespaceDeclaration()) {
+                writer.writeDefaultNamespace(ns.getNamespaceURI());
+            } else {
+                writer.writeNamespace(ns.getPrefix(), ns.getNamespaceURI());
+            }
+        }
+        for (Iterator<Attribute> it = se.getAttributes(); it.hasNext();) {
+            final Attribute a = it.next();
+            final QName aName = a.getName();
+            if (aName.getNamespaceURI().isEmpty()) {
+                writer.writeAttribute(aName.getLocalPart(), a.getValue());
+            } else {
+                writer.writeAttribute(aName.getPrefix(), aName.getNamespaceURI(), aName.getLocalPart(), a.getValue());
+            }
+        }
+    }
+
+    private StartElement withNamespaces(StartElement se, Map<String, String> namespaces) {
+        final List<Namespace> list = new ArrayList<>(namespaces.size());
+        for (Map.Entry<String, String> e : namespaces.entrySet()) {
+            list.add(e.getKey().isEmpty()
+                    ? eventFactory.createNamespace(e.getValue())
+                    : eventFactory.createNamespace(e.getKey(), e.getValue()));
+        }
+        final QName name = se.getName();
+        return eventFactory.createStartElement(name.getPrefix(), name.getNamespaceURI(), name.getLocalPart(),
+                se.getAttributes(), list.iterator(), se.getNamespaceContext());
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2019, 2025 Michael Büchner <m.buechner@dnb.de>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.labs.europack.processor;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Threads of the I/O-bound stages: the callbacks of the downloads and the
+ * writes of the sinks. With <code>europack.threads=virtual</code> they run on
+ * virtual threads, one per task; the filters always run on the bounded pool
+ * of platform threads of the processor.
+ * <p>
+ * Downloads are still enqueued at the OkHttp dispatcher rather than run with
+ * a blocking <code>execute()</code> each: the dispatcher runs every call,
+ * blocking, on a thread of its executor, i.e. on a virtual thread of its own
+ * in this mode, and only its limits are adapted by the concurrency
+ * controller. A blocking <code>execute()</code> per item would bypass them.
+ * <p>
+ * Code which may run on these threads guards blocking I/O with a
+ * {@link java.util.concurrent.locks.ReentrantLock} instead of a monitor: on
+ * JDK 21 a virtual thread blocking inside <code>synchronized</code> pins its
+ * carrier thread.
+ *
+ * @author Michael Büchner <m.buechner@dnb.de>
+ */
+public enum ThreadMode {
+
+    PLATFORM, VIRTUAL;
+
+    /**
+     * @return the mode set by <code>europack.threads</code>, default
+     * {@link #PLATFORM}
+     */
+    public static ThreadMode get() {
+        return "virtual".equalsIgnoreCase(System.getProperty("europack.threads", "platform")) ? VIRTUAL : PLATFORM;
+    }
+
+    /**
+     * @param name prefix of the thread names
+     * @return an executor starting a virtual thread per task
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor(String name) {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 1).factory());
+    }
+}
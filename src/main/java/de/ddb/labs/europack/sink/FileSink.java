@@ -19,14 +19,8 @@ import de.ddb.labs.europack.processor.EuropackDoc;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.StringWriter;
-import java.nio.charset.Charset;
 import java.text.Normalizer;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
+import java.util.concurrent.locks.ReentrantLock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -40,6 +34,8 @@ public class FileSink implements SinkInterface {
 
     private final Normalizer.Form normalizerForm;
     private File file;
+    // guards file, which filter() may change, and the write (see ThreadMode)
+    private final ReentrantLock lock = new ReentrantLock();
 
     /**
      *
@@ -76,39 +72,28 @@ public class FileSink implements SinkInterface {
      * @throws Exception
      */
     @Override
-    public synchronized boolean filter(EuropackDoc doc) throws Exception {
-        final Transformer transformer = TransformerFactory.newInstance().newTransformer();
-        transformer.setOutputProperty(OutputKeys.STANDALONE, "yes");
-        transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-        transformer.setOutputProperty(OutputKeys.METHOD, "xml");
-        transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
-        transformer.setOutputProperty(OutputKeys.VERSION, "1.0");
-        final StringWriter writer = new StringWriter();
-        transformer.transform(new DOMSource(doc.getDoc()), new StreamResult(writer));
-
-        String normalizedString;
-        if (normalizerForm == null) {
-            normalizedString = writer.toString();
-        } else {
-            normalizedString = Normalizer.normalize(writer.toString(), normalizerForm);
+    public boolean filter(EuropackDoc doc) throws Exception {
+        final byte[] data = Normalization.apply(doc.getData(), normalizerForm);
+        lock.lock();
+        try {
+            if (file == null) {
+                file = new File(doc.getId() + ".xml");
+            } else if (file.isDirectory()) {
+                file = new File(file.getPath() + File.separator + doc.getId() + ".xml");
+            }
+
+            try (final FileOutputStream outputStream = new FileOutputStream(file)) {
+                outputStream.write(data);
+
+            } catch (IOException e) {
+                LOG.error("Datei '{}' konnte nicht gespeichert werden. {}", file.getAbsoluteFile(), e.getMessage());
+                return false;
+            }
+
+            return true;
+        } finally {
+            lock.unlock();
         }
-
-        if (file == null) {
-            file = new File(doc.getId() + ".xml");
-        } else if (file.isDirectory()) {
-            file = new File(file.getPath() + File.separator + doc.getId() + ".xml");
-        }
-
-        try (final FileOutputStream outputStream = new FileOutputStream(file)) {
-            final byte[] strBytes = normalizedString.getBytes(Charset.forName("UTF-8"));
-            outputStream.write(strBytes);
-
-        } catch (IOException e) {
-            LOG.error("Datei '{}' konnte nicht gespeichert werden. {}", file.getAbsoluteFile(), e.getMessage());
-            return false;
-        }
-
-        return true;
     }
 
     /**
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2019, 2025 Michael Büchner <m.buechner@dnb.de>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.labs.europack.sink;
+
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+
+/**
+ * Unicode normalization of serialized documents for the sinks. Documents
+ * which are normalized already (the common case) are returned as they are,
+ * without encoding them again.
+ *
+ * @author Michael Büchner <m.buechner@dnb.de>
+ */
+final class Normalization {
+
+    private Normalization() {
+    }
+
+    /**
+     * @param xml document (UTF-8)
+     * @param form normalization form, null for none
+     * @return the normalized document (UTF-8)
+     */
+    static byte[] apply(byte[] xml, Normalizer.Form form) {
+        if (form == null) {
+            return xml;
+        }
+        final String s = new String(xml, StandardCharsets.UTF_8);
+        if (Normalizer.isNormalized(s, form)) {
+            return xml;
+        }
+        return Normalizer.normalize(s, form).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -16,13 +16,8 @@
 package de.ddb.labs.europack.sink;
 
 import de.ddb.labs.europack.processor.EuropackDoc;
-import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
 import java.text.Normalizer;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
 
 /**
  *
@@ -55,21 +50,7 @@ public class OutputSink implements SinkInterface {
      */
     @Override
     public synchronized boolean filter(EuropackDoc doc) throws Exception {
-        final Transformer transformer = TransformerFactory.newInstance().newTransformer();
-        transformer.setOutputProperty(OutputKeys.STANDALONE, "yes");
-        transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-        transformer.setOutputProperty(OutputKeys.METHOD, "xml");
-        transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
-        transformer.setOutputProperty(OutputKeys.VERSION, "1.0");
-        final StringWriter writer = new StringWriter();
-        transformer.transform(new DOMSource(doc.getDoc()), new StreamResult(writer));
-
-        String normalizedString;
-        if (normalizerForm == null) {
-            normalizedString = writer.toString();
-        } else {
-            normalizedString = Normalizer.normalize(writer.toString(), normalizerForm);
-        }
+        final String normalizedString = new String(Normalization.apply(doc.getData(), normalizerForm), StandardCharsets.UTF_8);
         System.out.println("### " + doc.getId() + " ####################################");
         System.out.println(normalizedString);
         System.out.println("#########################################################################");
@@ -20,17 +20,11 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.StringWriter;
-import java.nio.charset.Charset;
 import java.text.Normalizer;
 import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -51,6 +45,8 @@ public class ZipFileSink implements SinkInterface {
     private int fileCounter;
 
     private final Normalizer.Form normalizerForm;
+    // guards the open ZIP package and its counters (see ThreadMode)
+    private final ReentrantLock lock;
 
     /**
      * ZIP file writer
@@ -78,6 +74,7 @@ public class ZipFileSink implements SinkInterface {
         this.filesPerZip = filesPerZip;
         this.normalizerForm = normalizerForm;
         this.fileCounter = 0;
+        this.lock = new ReentrantLock();
     }
 
     /**
@@ -87,36 +84,26 @@ public class ZipFileSink implements SinkInterface {
      * @throws Exception
      */
     @Override
-    public synchronized boolean filter(EuropackDoc doc) throws Exception {
-
-        final Transformer transformer = TransformerFactory.newInstance().newTransformer();
-        transformer.setOutputProperty(OutputKeys.STANDALONE, "yes");
-        transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-        transformer.setOutputProperty(OutputKeys.METHOD, "xml");
-        transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
-        transformer.setOutputProperty(OutputKeys.VERSION, "1.0");
-        final StringWriter writer = new StringWriter();
-        transformer.transform(new DOMSource(doc.getDoc()), new StreamResult(writer));
-
-        String normalizedString;
-        if (normalizerForm == null) {
-            normalizedString = writer.toString();
-        } else {
-            normalizedString = Normalizer.normalize(writer.toString(), normalizerForm);
+    public boolean filter(EuropackDoc doc) throws Exception {
+        final byte[] data = Normalization.apply(doc.getData(), normalizerForm);
+        lock.lock();
+        try {
+            writeToZipArchive(doc.getId() + ".xml", data);
+        } finally {
+            lock.unlock();
         }
-        writeToZipArchive(doc.getId() + ".xml", normalizedString);        
         return true;
     }
 
     /**
      * Writes an Stream to an ZIP-File
      *
-     * @param in InputStream with data
-     * @param xmlFile Designated file name in ZIP file
+     * @param xmlFileName Designated file name in ZIP file
+     * @param data XML document (UTF-8)
      * @throws FileNotFoundException
      * @throws IOException
      */
-    private synchronized void writeToZipArchive(String xmlFileName, String xmlFileContent) throws FileNotFoundException, IOException {
+    private void writeToZipArchive(String xmlFileName, byte[] data) throws FileNotFoundException, IOException {
 
         if (filesWrote % filesPerZip == 0) {
             if (zos != null) {
@@ -130,7 +117,6 @@ public class ZipFileSink implements SinkInterface {
         }
 
         zos.putNextEntry(new ZipEntry(xmlFileName));
-        final byte[] data = xmlFileContent.getBytes(Charset.forName("UTF-8"));
         zos.write(data, 0, data.length);
 
         zos.closeEntry();
@@ -156,12 +142,15 @@ public class ZipFileSink implements SinkInterface {
     }
 
     @Override
-    public synchronized void dispose() {
+    public void dispose() {
+        lock.lock();
         try {
             if (zos != null) {
                 zos.close();
             }
         } catch (IOException ex) {
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -22,10 +22,8 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.ehcache.Cache;
 import org.ehcache.Status;
 import org.ehcache.config.builders.CacheConfigurationBuilder;
@@ -50,11 +48,15 @@ public class CacheManager {
                     ResourcePoolsBuilder.newResourcePoolsBuilder()
                             .heap(1000, EntryUnit.ENTRIES) // only a small number of hot entries on-heap
                             .offheap(512, MemoryUnit.MB) // bulk in off-heap to reduce GC impact
-                            .disk(10, MemoryUnit.GB, false)); // persistent disk tier
+                            .disk(10, MemoryUnit.GB, false)) // persistent disk tier
+            // compressed XML instead of Java serialization of a DOM
+            .withValueSerializer(EuropackDocSerializer.class);
     private final org.ehcache.CacheManager CM;
     private final Path tmpPath;
+    // cache handles, resolved once per cacheId
+    private final Map<String, Cache<String, EuropackDoc>> caches;
     // Track only IDs for errors to avoid retaining full documents in memory
-    private final Map<String, List<String>> errors;
+    private final Map<String, ErrorRegistry> errors;
 
     private static final class InstanceHolder {
 
@@ -71,7 +73,8 @@ public class CacheManager {
             pt.toFile().mkdir();
         }
         this.tmpPath = pt;
-        this.errors = new HashMap<>();
+        this.caches = new ConcurrentHashMap<>();
+        this.errors = new ConcurrentHashMap<>();
 
         // download temporary files
         Runtime.getRuntime().addShutdownHook(new Thread() {
@@ -107,59 +110,47 @@ public class CacheManager {
         return InstanceHolder.INSTANCE;
     }
 
-    public synchronized void addCache(String cacheId) {
+    public void addCache(String cacheId) {
         try {
-            CM.createCache(cacheId, CCB);
-            errors.put(cacheId, new ArrayList<>());
+            caches.put(cacheId, CM.createCache(cacheId, CCB));
+            errors.put(cacheId, new ErrorRegistry());
         } catch (IllegalArgumentException e) {
             LOG.warn("{}", e.getMessage());
         }
     }
 
-    public synchronized void removeCache(String cacheId) {
+    public void removeCache(String cacheId) {
+        caches.remove(cacheId);
         CM.removeCache(cacheId);
         errors.remove(cacheId);
     }
 
-    public synchronized void addError(String cacheId, String id) {
-        if (id != null && !id.isBlank()) {
-            errors.get(cacheId).add(id);
+    public void addError(String cacheId, String id, ErrorRegistry.Category category) {
+        final ErrorRegistry registry = errors.get(cacheId);
+        if (registry != null) {
+            registry.add(id, category);
         }
     }
 
-    public synchronized List<EuropackDoc> getErrors(String cacheId) {
-        // Build lightweight wrappers on demand to preserve API without retaining docs
-        final List<EuropackDoc> out = new ArrayList<>();
-        final List<String> ids = errors.get(cacheId);
-        if (ids != null) {
-            for (String id : ids) {
-                out.add(new EuropackDoc(id));
-            }
-        }
-        return out;
+    /**
+     * @param cacheId cache identifier
+     * @return the errors of the cache (empty, if there is no such cache)
+     */
+    public ErrorRegistry getErrors(String cacheId) {
+        final ErrorRegistry registry = errors.get(cacheId);
+        return registry == null ? new ErrorRegistry() : registry;
     }
 
     /**
-     * Remove first error entry with the given id from the error list of the cache.
+     * Remove the error entry with the given id from the errors of the cache.
      * 
      * @param cacheId cache identifier
      * @param id      document id to remove
-     * @return true if an entry was removed, false otherwise
+     * @return category of the removed entry or null, if there was none
      */
-    public synchronized boolean removeErrorById(String cacheId, String id) {
-        final List<String> list = errors.get(cacheId);
-        if (list == null || id == null) {
-            return false;
-        }
-        final boolean removed = list.remove(id);
-        if (removed)
-            return true;
-        return false;
-    }
-
-    public synchronized List<String> getErrorIds(String cacheId) {
-        final List<String> ids = errors.get(cacheId);
-        return (ids == null) ? new ArrayList<>() : new ArrayList<>(ids);
+    public ErrorRegistry.Category removeErrorById(String cacheId, String id) {
+        final ErrorRegistry registry = errors.get(cacheId);
+        return registry == null ? null : registry.remove(id);
     }
 
     public synchronized void destroy() {
@@ -168,21 +159,26 @@ public class CacheManager {
         }
     }
 
-    public synchronized EuropackDoc get(String cacheId, String id) {
-        final Cache<String, EuropackDoc> cacheLocal = CM.getCache(cacheId, String.class, EuropackDoc.class);
-        return (EuropackDoc) cacheLocal.get(id);
+    /**
+     * Logs cost and footprint of the documents moved to off-heap and disk.
+     */
+    public void logStatistics() {
+        EuropackDocSerializer.logStatistics();
+    }
+
+    public EuropackDoc get(String cacheId, String id) {
+        return caches.get(cacheId).get(id);
     }
 
-    public synchronized void put(String cacheId, EuropackDoc element) {
-        final Cache<String, EuropackDoc> cacheLocal = CM.getCache(cacheId, String.class, EuropackDoc.class);
-        cacheLocal.put(element.getId(), element);
+    public void put(String cacheId, EuropackDoc element) {
+        caches.get(cacheId).put(element.getId(), element);
     }
 
     /**
      * Remove a single document from the cache to free memory after processing.
      */
-    public synchronized void remove(String cacheId, String id) {
-        final Cache<String, EuropackDoc> cacheLocal = CM.getCache(cacheId, String.class, EuropackDoc.class);
+    public void remove(String cacheId, String id) {
+        final Cache<String, EuropackDoc> cacheLocal = caches.get(cacheId);
         if (cacheLocal != null && id != null) {
             try {
                 cacheLocal.remove(id);
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2019, 2025 Michael Büchner <m.buechner@dnb.de>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.labs.europack.source.ddbapi;
+
+import java.util.Arrays;
+import okhttp3.Dispatcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Adapts the number of parallel requests to the API (AIMD). The outcome and
+ * duration of every EDM download (<code>/items/{id}/edm</code>) are collected
+ * in windows of at least 20 calls (two per allowed request); pages of the
+ * search take much longer and are not taken into account. After a window the
+ * limit is
+ * <ul>
+ * <li>halved, if more than 2% of the calls failed (5xx, 429, timeouts and
+ * other exceptions),</li>
+ * <li>cut by a quarter, if the 95th percentile of the duration is more than
+ * twice the baseline, i.e. the lowest p95 seen (drifting up slowly),</li>
+ * <li>raised by one otherwise, if calls are waiting for the limit.</li>
+ * </ul>
+ * Bounds are set with <code>europack.http.minRequests</code> (default 2) and
+ * <code>europack.http.maxRequests</code> (default 32); the limit starts at 8.
+ * With <code>europack.http.adaptive=false</code> it stays at 8.
+ */
+final class ConcurrencyController {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ConcurrencyController.class);
+    static final int INITIAL = 8;
+    private static final int MIN_WINDOW = 20;
+    private static final double MAX_ERROR_RATE = 0.02;
+    private static final double MAX_LATENCY_FACTOR = 2.0;
+    // latency histogram: 4 buckets per power of two of milliseconds
+    private static final int BUCKETS_PER_OCTAVE = 4;
+    private static final int BUCKETS = 20 * BUCKETS_PER_OCTAVE;
+
+    private final Dispatcher dispatcher;
+    private final boolean enabled;
+    private final int min;
+    private final int max;
+    private int limit;
+    // current window
+    private final int[] histogram;
+    private int calls;
+    private int errors;
+    // lowest p95 seen in ms, -1 before the first window
+    private double baseline;
+
+    ConcurrencyController(Dispatcher dispatcher) {
+        this.dispatcher = dispatcher;
+        this.enabled = Boolean.parseBoolean(System.getProperty("europack.http.adaptive", "true"));
+        this.min = Math.max(1, Integer.getInteger("europack.http.minRequests", 2));
+        this.max = Math.max(min, Integer.getInteger("europack.http.maxRequests", 32));
+        this.limit = Math.min(max, Math.max(min, INITIAL));
+        this.histogram = new int[BUCKETS];
+        this.baseline = -1;
+        if (!enabled) {
+            this.limit = INITIAL;
+        }
+    }
+
+    /**
+     * @return the current limit of parallel requests
+     */
+    synchronized int getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return the highest limit allowed
+     */
+    int getMax() {
+        return enabled ? max : INITIAL;
+    }
+
+    /**
+     * @param code HTTP status of the response
+     * @param durMs duration of the call
+     */
+    void recordStatus(int code, long durMs) {
+        record(code >= 500 || code == 429, durMs);
+    }
+
+    /**
+     * @param durMs duration of the failed call
+     */
+    void recordException(long durMs) {
+        record(true, durMs);
+    }
+
+    private void record(boolean error, long durMs) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (this) {
+            ++histogram[bucket(durMs)];
+            ++calls;
+            if (error) {
+                ++errors;
+            }
+            if (calls >= Math.max(MIN_WINDOW, limit * 2)) {
+                final int newLimit = evaluate();
+                // still holding the monitor, so limits are applied in order
+                if (newLimit > 0) {
+                    dispatcher.setMaxRequests(newLimit);
+                    dispatcher.setMaxRequestsPerHost(newLimit);
+                }
+            }
+        }
+    }
+
+    /**
+     * Ends the window.
+     *
+     * @return the new limit or -1, if unchanged
+     */
+    private int evaluate() {
+        final double p95 = percentile(0.95);
+        final double errorRate = (double) errors / calls;
+        final int old = limit;
+        if (errorRate > MAX_ERROR_RATE) {
+            limit = Math.max(min, limit / 2);
+        } else if (baseline > 0 && p95 > baseline * MAX_LATENCY_FACTOR) {
+            limit = Math.max(min, limit * 3 / 4);
+        } else if (dispatcher.queuedCallsCount() > 0) {
+            limit = Math.min(max, limit + 1);
+        }
+        if (errorRate <= MAX_ERROR_RATE) {
+            // the lowest p95 is the baseline; let it rise slowly with the server
+            baseline = baseline < 0 || p95 < baseline ? p95 : baseline + (p95 - baseline) * 0.05;
+        }
+        if (limit < old) {
+            LOG.info("HTTP concurrency {} -> {} (p95={} ms, baseline={} ms, errors={}/{})", old, limit, Math.round(p95), Math.round(baseline), errors, calls);
+        } else if (limit > old) {
+            LOG.debug("HTTP concurrency {} -> {} (p95={} ms, baseline={} ms)", old, limit, Math.round(p95), Math.round(baseline));
+        }
+        Arrays.fill(histogram, 0);
+        calls = 0;
+        errors = 0;
+        return limit == old ? -1 : limit;
+    }
+
+    private static int bucket(long durMs) {
+        final double octaves = Math.log(Math.max(0, durMs) + 1) / Math.log(2);
+        return (int) Math.min(BUCKETS - 1, octaves * BUCKETS_PER_OCTAVE);
+    }
+
+    /**
+     * @return upper bound of the bucket containing the percentile in ms
+     */
+    private double percentile(double p) {
+        final int rank = (int) Math.ceil(calls * p);
+        int seen = 0;
+        for (int i = 0; i < BUCKETS; ++i) {
+            seen += histogram[i];
+            if (seen >= rank) {
+                return Math.pow(2, (double) (i + 1) / BUCKETS_PER_OCTAVE) - 1;
+            }
+        }
+        return Math.pow(2, (double) BUCKETS / BUCKETS_PER_OCTAVE) - 1;
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2019, 2025 Michael Büchner <m.buechner@dnb.de>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.labs.europack.source.ddbapi;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads the pages of a search with cursor ahead of the consumer. A thread of
+ * its own requests the next page as soon as the previous one has arrived and
+ * keeps up to <code>europack.search.prefetch</code> (default 2) pages in a
+ * queue, so the submission of downloads never waits for a search round-trip.
+ * <p>
+ * A search split into disjoint shards is read by several threads, a cursor
+ * per shard; their pages end up in the same queue.
+ * <p>
+ * The number of rows per page starts at 1000 and adapts to the duration of a
+ * request: it is doubled while a page takes less than half of
+ * <code>europack.search.targetMs</code> (default 2000), and halved when a
+ * page takes longer. Bounds are <code>europack.search.minRows</code>
+ * (default 250) and <code>europack.search.maxRows</code> (default 5000).
+ *
+ * @author Michael Büchner <m.buechner@dnb.de>
+ */
+class CursorReader implements AutoCloseable {
+
+    private final static Logger LOG = LoggerFactory.getLogger(CursorReader.class);
+
+    /**
+     * Requests one page of the search.
+     */
+    @FunctionalInterface
+    interface PageFetcher {
+
+        /**
+         * @param spool spool to add the IDs of the page to
+         * @param cursorMark current cursor mark
+         * @param rows number of rows to request
+         * @return next cursor mark or null on error
+         */
+        String fetch(DdbIdSpool spool, String cursorMark, int rows);
+    }
+
+    // marks the end of the search in the queue
+    private static final DdbIdSpool END = new DdbIdSpool();
+    private final BlockingQueue<DdbIdSpool> pages;
+    private final int initialRows;
+    private final int minRows;
+    private final int maxRows;
+    private final long targetNanos;
+    private final ExecutorService exe;
+    // shards not read to the end yet
+    private final AtomicInteger running;
+    private volatile boolean closed;
+
+    /**
+     * Starts reading.
+     *
+     * @param fetcher
+     * @param initialRows rows of the first page
+     */
+    CursorReader(PageFetcher fetcher, int initialRows) {
+        this(List.of(fetcher), 1, initialRows);
+    }
+
+    /**
+     * Starts reading the shards of a search.
+     *
+     * @param shards a fetcher per shard
+     * @param threads number of shards read at the same time
+     * @param initialRows rows of the first page of a shard
+     */
+    CursorReader(List<PageFetcher> shards, int threads, int initialRows) {
+        final int n = Math.max(1, Math.min(threads, shards.size()));
+        final AtomicInteger count = new AtomicInteger();
+        this.pages = new ArrayBlockingQueue<>(n * Math.max(1, Integer.getInteger("europack.search.prefetch", 2)));
+        this.minRows = Math.max(1, Integer.getInteger("europack.search.minRows", 250));
+        this.maxRows = Math.max(minRows, Integer.getInteger("europack.search.maxRows", 5000));
+        this.initialRows = Math.min(maxRows, Math.max(minRows, initialRows));
+        this.targetNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, Integer.getInteger("europack.search.targetMs", 2000)));
+        this.running = new AtomicInteger(shards.size());
+        this.exe = Executors.newFixedThreadPool(n, r -> {
+            final Thread t = new Thread(r, "europack-search-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        if (shards.isEmpty()) {
+            pages.add(END);
+        }
+        for (PageFetcher shard : shards) {
+            exe.execute(() -> read(shard));
+        }
+        exe.shutdown();
+    }
+
+    private void read(PageFetcher fetcher) {
+        try {
+            String cursorMark = "*";
+            int rows = initialRows;
+            while (!closed) {
+                final DdbIdSpool spool = new DdbIdSpool();
+                final long start = System.nanoTime();
+                final String nextCursorMark = fetcher.fetch(spool, cursorMark, rows);
+                rows = adapt(rows, System.nanoTime() - start);
+                if (!spool.isEmpty()) {
+                    pages.put(spool);
+                }
+                if (nextCursorMark == null || nextCursorMark.isBlank() || nextCursorMark.equals(cursorMark)) {
+                    break;
+                }
+                cursorMark = nextCursorMark;
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException ex) {
+            LOG.error("Search failed: {}", ex.getMessage(), ex);
+        } finally {
+            // the consumer is gone, if closed
+            if (running.decrementAndGet() == 0 && !closed) {
+                try {
+                    pages.put(END);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private int adapt(int rows, long nanos) {
+        int newRows = rows;
+        if (nanos < targetNanos / 2) {
+            newRows = Math.min(maxRows, rows * 2);
+        } else if (nanos > targetNanos) {
+            newRows = Math.max(minRows, rows / 2);
+        }
+        if (newRows != rows) {
+            LOG.debug("Search page took {} ms, rows {} -> {}", TimeUnit.NANOSECONDS.toMillis(nanos), rows, newRows);
+        }
+        return newRows;
+    }
+
+    /**
+     * Waits for the next page.
+     *
+     * @param canceled stops waiting, if true
+     * @return IDs of the next page or null at the end of the search or if
+     * canceled
+     * @throws InterruptedException
+     */
+    DdbIdSpool next(BooleanSupplier canceled) throws InterruptedException {
+        DdbIdSpool spool = null;
+        while (spool == null) {
+            if (canceled.getAsBoolean()) {
+                return null;
+            }
+            spool = pages.poll(500, TimeUnit.MILLISECONDS);
+        }
+        return spool == END ? null : spool;
+    }
+
+    /**
+     * Stops reading, pages left are dropped.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        exe.shutdownNow();
+        pages.clear();
+    }
+}
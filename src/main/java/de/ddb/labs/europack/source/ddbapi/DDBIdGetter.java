@@ -15,8 +15,7 @@
  */
 package de.ddb.labs.europack.source.ddbapi;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonFactory;
 import de.ddb.labs.europack.gui.Preferences;
 import de.ddb.labs.europack.gui.helper.PreferencesUtil;
 import java.io.BufferedReader;
@@ -31,6 +30,10 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
@@ -48,15 +51,15 @@ public class DDBIdGetter {
 
     private final static Logger LOG = LoggerFactory.getLogger(DDBIdGetter.class);
     private static final Marker FILE_MARKER = MarkerFactory.getMarker("FILE");
-    private final static int ENTITYCOUNT = 1000; // count of entities per query
-    // Throttle at the source to prevent downloader/OkHttp queue explosion
-    // when filters are off or processor is saturated.
-    final int backlogLimit = 1024; // conservative fixed limit
+    private final static int ENTITYCOUNT = 1000; // count of entities per query, adapted while paging
+    private final static int SHARD_MIN_RESULTS = 100000; // smaller searches are not split
     private final String api;
     private final String apiKey;
-    private final ObjectMapper m;
+    private final JsonFactory jsonFactory;
     private final OkHttpClient client;
     private final String query;
+    private final String rawQuery;
+    private final int shards;
     private EdmDownloader downloader;
     private boolean done, canceled;
     private List<String> firstIds;
@@ -89,7 +92,7 @@ public class DDBIdGetter {
     public DDBIdGetter(String api, String query, EdmDownloader downloader, String edmProfile)
             throws InterruptedException, IOException {
         this.errors = 0;
-        this.m = new ObjectMapper();
+        this.jsonFactory = new JsonFactory();
         this.downloader = downloader;
         this.client = HttpClientProvider.getClient();
         this.done = false;
@@ -108,10 +111,12 @@ public class DDBIdGetter {
                 sbQ.append(" OR ");
             }
 
-            this.query = URLEncoder.encode(sbQ.substring(0, sbQ.length() - 4), "UTF-8");
+            this.rawQuery = sbQ.substring(0, sbQ.length() - 4);
         } else {
-            this.query = URLEncoder.encode(query, "UTF-8");
+            this.rawQuery = query;
         }
+        this.query = URLEncoder.encode(rawQuery, "UTF-8");
+        this.shards = Math.max(1, Integer.getInteger("europack.search.shards", 1));
         this.firstIds = new ArrayList<>();
         LOG.info("API: '{}'", this.api);
         LOG.info("Search query: '{}'", this.query);
@@ -130,66 +135,51 @@ public class DDBIdGetter {
         LOG.info("There are {} DDB objects to download.", itemsToDownload);
         downloader.setItemsToDownload(itemsToDownload);
 
-        String nextCursorMark = "*";
         int count = 0;
-        while (nextCursorMark != null && !nextCursorMark.isBlank() && !isCanceled()) {
-            final List<String> list = new ArrayList<>();
-            final String nextCursorMarkTmp = findDdbIds(list, nextCursorMark);
-            count += list.size();
-            LOG.info(FILE_MARKER, "{} items added, it's {} all in all now.", list.size(), count);
-
-            for (String ddbId : list) {
-                if (isCanceled()) {
-                    break;
-                }
-                try {
-                    while (!isCanceled() && downloader.getBacklog() > backlogLimit) {
-                        Thread.sleep(50);
+        // the next pages are read while the downloads of this one are added
+        try (final CursorReader reader = new CursorReader(split(itemsToDownload), shards, ENTITYCOUNT)) {
+            for (DdbIdSpool spool = reader.next(this::isCanceled); spool != null; spool = reader.next(this::isCanceled)) {
+                count += spool.size();
+                LOG.info(FILE_MARKER, "{} items added, it's {} all in all now.", spool.size(), count);
+
+                for (DdbId id = spool.poll(); id != null; id = spool.poll()) {
+                    if (isCanceled()) {
+                        break;
+                    }
+                    final String ddbId = id.toString();
+                    Request request;
+
+                    if (getEdmProfile().isBlank()) {
+                        request = new Request.Builder()
+                                .url(api + "/items/" + ddbId + "/edm")
+                                .addHeader("Accept", "application/xml")
+                                .addHeader("Authorization", "OAuth oauth_consumer_key=\"" + apiKey + "\"")
+                                .build();
+                    } else {
+                        request = new Request.Builder()
+                                .url(api + "/items/" + ddbId + "/edm")
+                                .addHeader("Accept", "application/xml")
+                                .addHeader("Authorization", "OAuth oauth_consumer_key=\"" + apiKey + "\"")
+                                .addHeader("Accept-Profile", getEdmProfile())
+                                .build();
                     }
-                } catch (InterruptedException ie) {
-                    Thread.currentThread().interrupt();
-                }
-                Request request;
-
-                if (getEdmProfile().isBlank()) {
-                    request = new Request.Builder()
-                            .url(api + "/items/" + ddbId + "/edm")
-                            .addHeader("Accept", "application/xml")
-                            .addHeader("Authorization", "OAuth oauth_consumer_key=\"" + apiKey + "\"")
-                            .build();
-                } else {
-                    request = new Request.Builder()
-                            .url(api + "/items/" + ddbId + "/edm")
-                            .addHeader("Accept", "application/xml")
-                            .addHeader("Authorization", "OAuth oauth_consumer_key=\"" + apiKey + "\"")
-                            .addHeader("Accept-Profile", getEdmProfile())
-                            .build();
-                }
-
-                downloader.addDownloadJob(ddbId, request, false);
-            }
 
-            if (nextCursorMark.equals(nextCursorMarkTmp)) {
-                break;
+                    // blocks while the processor's backlog is full
+                    downloader.addDownloadJob(ddbId, request, false);
+                }
             }
-            nextCursorMark = nextCursorMarkTmp;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
         }
         done = true;
         errors = itemsToDownload - count; // should be 0 if successfull
     }
 
-    public void addAdditionalJobs(List<String> ddbIds, boolean removeFromErrors) {
+    public void addAdditionalJobs(Iterable<String> ddbIds, boolean removeFromErrors) {
         for (String ddbId : ddbIds) {
             if (isCanceled()) {
                 break;
             }
-            try {
-                while (!isCanceled() && downloader.getBacklog() > backlogLimit) {
-                    Thread.sleep(50);
-                }
-            } catch (InterruptedException ie) {
-                Thread.currentThread().interrupt();
-            }
             Request request;
             if (getEdmProfile().isBlank()) {
                 request = new Request.Builder()
@@ -241,16 +231,12 @@ public class DDBIdGetter {
                 final ResponseBody rb = response.body();
                 if (rb != null) {
                     try (final InputStream searchResult = rb.byteStream()) {
-                        final JsonNode jnrt = m.readTree(searchResult);
-                        if (firstIds.isEmpty()) {
-                            final List<JsonNode> resultsNode = jnrt.findValues("id");
-                            for (JsonNode jn : resultsNode) {
-                                if (jn.isTextual() && jn.asText("").length() == 32) {
-                                    firstIds.add(jn.asText());
-                                }
+                        final boolean collect = firstIds.isEmpty();
+                        numberOfResults = SearchResponse.read(jsonFactory, searchResult, id -> {
+                            if (collect && DdbId.isValid(id)) {
+                                firstIds.add(id.toString());
                             }
-                        }
-                        numberOfResults = jnrt.get("numberOfResults").asInt(-1);
+                        }).getNumberOfResults();
                     }
                 }
             } else {
@@ -263,18 +249,98 @@ public class DDBIdGetter {
 
     public synchronized List<String> getFirstDdbIds() {
         if (firstIds.isEmpty()) {
-            findDdbIds(firstIds, null);
+            final DdbIdSpool spool = new DdbIdSpool();
+            findDdbIds(query, spool, null, ENTITYCOUNT);
+            for (DdbId id = spool.poll(); id != null; id = spool.poll()) {
+                firstIds.add(id.toString());
+            }
         }
         return firstIds;
     }
 
+    /**
+     * Splits the search into disjoint shards by the first character of the
+     * ID, if <code>europack.search.shards</code> (number of shards read at
+     * the same time) is more than 1 and the search is big enough. The search
+     * is not split, if the results of the shards do not add up to the total.
+     *
+     * @param total number of results of the search
+     * @return a fetcher per shard
+     */
+    List<CursorReader.PageFetcher> split(int total) {
+        final List<CursorReader.PageFetcher> single = List.of((spool, cursorMark, rows) -> findDdbIds(query, spool, cursorMark, rows));
+        if (shards <= 1 || total < SHARD_MIN_RESULTS) {
+            return single;
+        }
+        final List<CursorReader.PageFetcher> list = new ArrayList<>();
+        final List<String> shardQueries = new ArrayList<>();
+        final List<Future<Integer>> counts = new ArrayList<>();
+        final ExecutorService exe = Executors.newFixedThreadPool(shards);
+        int sum = 0;
+        try {
+            for (char c : DdbId.DIGITS.toCharArray()) {
+                final String shardQuery = URLEncoder.encode("(" + rawQuery + ") AND id:" + c + "*", Charset.forName("UTF-8"));
+                shardQueries.add(shardQuery);
+                counts.add(exe.submit(() -> countResults(shardQuery)));
+            }
+            for (int i = 0; i < shardQueries.size(); ++i) {
+                final String shardQuery = shardQueries.get(i);
+                final int n = counts.get(i).get();
+                if (n > 0) {
+                    sum += n;
+                    list.add((spool, cursorMark, rows) -> findDdbIds(shardQuery, spool, cursorMark, rows));
+                }
+            }
+        } catch (ExecutionException ex) {
+            LOG.warn("Search not split, counting a shard failed: {}", ex.getCause().getMessage());
+            return single;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return single;
+        } finally {
+            exe.shutdownNow();
+        }
+        if (sum != total) {
+            LOG.warn("Search not split, the shards have {} results instead of {}.", sum, total);
+            return single;
+        }
+        LOG.info("Search split into {} shards, {} read at the same time.", list.size(), shards);
+        return list;
+    }
+
+    /**
+     * @param query URL encoded query
+     * @return number of results
+     * @throws IOException
+     */
+    private int countResults(String query) throws IOException {
+        final Request request = new Request.Builder()
+                .url(api + "/search?query=" + query + "&rows=0")
+                .addHeader("Accept", "application/json")
+                .addHeader("Authorization", "OAuth oauth_consumer_key=\"" + apiKey + "\"")
+                .build();
+        try (final Response response = client.newCall(request).execute()) {
+            final ResponseBody rb = response.body();
+            if (!response.isSuccessful() || rb == null) {
+                throw new ConnectException("Response for " + response.request().url().toString() + " is "
+                        + response.code() + " (" + response.message() + ")");
+            }
+            try (final InputStream searchResult = rb.byteStream()) {
+                return SearchResponse.read(jsonFactory, searchResult, id -> {
+                }).getNumberOfResults();
+            }
+        }
+    }
+
     /**
      *
-     * @param list       List to add DDB URIs to.
+     * @param query      URL encoded query
+     * @param spool      Spool to add DDB IDs to.
      * @param cursorMark Current cursor mark
+     * @param rows       Number of IDs to request
      * @return Next cursor marl
      */
-    private String findDdbIds(List<String> list, String cursorMark) {
+    private String findDdbIds(String query, DdbIdSpool spool, String cursorMark, int rows) {
         try {
             if (cursorMark == null || cursorMark.isBlank()) {
                 cursorMark = "*";
@@ -282,7 +348,7 @@ public class DDBIdGetter {
             String nextCursorMark = null;
             final String urltmp = api + "/search?query=" + query
                     + "&cursorMark=" + URLEncoder.encode(cursorMark, Charset.forName("UTF-8"))
-                    + "&rows=" + ENTITYCOUNT
+                    + "&rows=" + rows
                     + "&sort=" + URLEncoder.encode("id asc", Charset.forName("UTF-8"));
 
             final Request request = new Request.Builder()
@@ -295,16 +361,15 @@ public class DDBIdGetter {
                     final ResponseBody rb = response.body();
                     if (rb != null) {
                         try (final InputStream searchResult = rb.byteStream()) {
-                            final JsonNode jnrt = m.readTree(searchResult);
-                            final List<JsonNode> resultsNode = jnrt.findValues("id");
-                            nextCursorMark = jnrt.get("nextCursorMark").asText("");
-                            LOG.debug("cursorMark in/out: {} -> {}", cursorMark, nextCursorMark);
-
-                            for (JsonNode jn : resultsNode) {
-                                if (jn.isTextual() && jn.asText("").length() == 32) {
-                                    list.add(jn.asText());
+                            final SearchResponse sr = SearchResponse.read(jsonFactory, searchResult, id -> {
+                                if (DdbId.isValid(id)) {
+                                    spool.add(DdbId.of(id));
+                                } else if (id.length() == DdbId.LENGTH) {
+                                    LOG.warn(FILE_MARKER, "{}: Not a DDB ID, skipped", id.toString());
                                 }
-                            }
+                            });
+                            nextCursorMark = sr.getNextCursorMark() == null ? "" : sr.getNextCursorMark();
+                            LOG.debug("cursorMark in/out: {} -> {}", cursorMark, nextCursorMark);
                         }
                     }
                 } else {
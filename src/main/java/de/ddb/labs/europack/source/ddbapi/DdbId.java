@@ -0,0 +1,141 @@
+/*
+ * Copyright 2019, 2025 Michael Büchner <m.buechner@dnb.de>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.labs.europack.source.ddbapi;
+
+import java.util.Arrays;
+
+/**
+ * A DDB item ID (32 characters of base32, RFC 4648 alphabet) packed into 160
+ * bits: two longs and an int instead of a String of 32 characters.
+ *
+ * @author Michael Büchner <m.buechner@dnb.de>
+ */
+public final class DdbId implements Comparable<DdbId> {
+
+    public static final int LENGTH = 32;
+    // the first character of an ID is one of these
+    static final String DIGITS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ234567";
+    private static final char[] ALPHABET = DIGITS.toCharArray();
+    private static final byte[] VALUES = new byte[128];
+
+    static {
+        Arrays.fill(VALUES, (byte) -1);
+        for (int i = 0; i < ALPHABET.length; ++i) {
+            VALUES[ALPHABET[i]] = (byte) i;
+        }
+    }
+
+    // bits 159..96, 95..32 and 31..0 of the ID
+    final long hi;
+    final long mid;
+    final int lo;
+
+    DdbId(long hi, long mid, int lo) {
+        this.hi = hi;
+        this.mid = mid;
+        this.lo = lo;
+    }
+
+    /**
+     * @param id
+     * @return true, if the ID consists of 32 characters of base32
+     */
+    public static boolean isValid(CharSequence id) {
+        if (id == null || id.length() != LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < LENGTH; ++i) {
+            final char c = id.charAt(i);
+            if (c >= VALUES.length || VALUES[c] < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param id
+     * @return the packed ID
+     * @throws IllegalArgumentException if the ID is not 32 characters of
+     * base32
+     */
+    public static DdbId of(CharSequence id) throws IllegalArgumentException {
+        if (!isValid(id)) {
+            throw new IllegalArgumentException("Not a DDB ID: " + id);
+        }
+        long hi = 0;
+        long mid = 0;
+        int lo = 0;
+        for (int i = 0; i < LENGTH; ++i) {
+            hi = (hi << 5) | (mid >>> 59);
+            mid = (mid << 5) | (lo >>> 27);
+            lo = (lo << 5) | VALUES[id.charAt(i)];
+        }
+        return new DdbId(hi, mid, lo);
+    }
+
+    @Override
+    public String toString() {
+        final char[] chars = new char[LENGTH];
+        long h = hi;
+        long m = mid;
+        int l = lo;
+        for (int i = LENGTH - 1; i >= 0; --i) {
+            chars[i] = ALPHABET[l & 31];
+            l = (l >>> 5) | ((int) m << 27);
+            m = (m >>> 5) | (h << 59);
+            h >>>= 5;
+        }
+        return new String(chars);
+    }
+
+    static int hash(long hi, long mid, int lo) {
+        long h = hi * 0x9E3779B97F4A7C15L + mid;
+        h = (h ^ (h >>> 32)) * 0x9E3779B97F4A7C15L + lo;
+        return (int) (h ^ (h >>> 29));
+    }
+
+    @Override
+    public int hashCode() {
+        return hash(hi, mid, lo);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof DdbId)) {
+            return false;
+        }
+        final DdbId other = (DdbId) obj;
+        return hi == other.hi && mid == other.mid && lo == other.lo;
+    }
+
+    /**
+     * Orders by the packed value, i.e. by the base32 alphabet
+     * (<code>A</code>..<code>Z</code> before <code>2</code>..<code>7</code>),
+     * which is not the order of the IDs as strings.
+     */
+    @Override
+    public int compareTo(DdbId o) {
+        int c = Long.compareUnsigned(hi, o.hi);
+        if (c == 0) {
+            c = Long.compareUnsigned(mid, o.mid);
+        }
+        return c == 0 ? Integer.compareUnsigned(lo, o.lo) : c;
+    }
+}
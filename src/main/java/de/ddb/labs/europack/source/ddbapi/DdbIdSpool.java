@@ -0,0 +1,92 @@
+/*
+ * Copyright 2019, 2025 Michael Büchner <m.buechner@dnb.de>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.labs.europack.source.ddbapi;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * FIFO queue of {@link DdbId}s, stored in chunks of primitive arrays with 20
+ * bytes per ID. Not thread-safe.
+ *
+ * @author Michael Büchner <m.buechner@dnb.de>
+ */
+public class DdbIdSpool {
+
+    // IDs per chunk; every ID takes 5 ints
+    private static final int CHUNK = 1024;
+    private final Deque<int[]> chunks;
+    // next ID to read in the first chunk, next ID to write in the last chunk
+    private int head;
+    private int tail;
+    private int size;
+
+    public DdbIdSpool() {
+        this.chunks = new ArrayDeque<>();
+        this.tail = CHUNK;
+    }
+
+    public void add(DdbId id) {
+        if (tail == CHUNK) {
+            chunks.addLast(new int[CHUNK * 5]);
+            tail = 0;
+        }
+        final int[] c = chunks.peekLast();
+        final int i = tail * 5;
+        c[i] = (int) (id.hi >>> 32);
+        c[i + 1] = (int) id.hi;
+        c[i + 2] = (int) (id.mid >>> 32);
+        c[i + 3] = (int) id.mid;
+        c[i + 4] = id.lo;
+        ++tail;
+        ++size;
+    }
+
+    /**
+     * @return the first ID or null, if the spool is empty
+     */
+    public DdbId poll() {
+        if (size == 0) {
+            return null;
+        }
+        final int[] c = chunks.peekFirst();
+        final int i = head * 5;
+        final DdbId id = new DdbId(
+                ((long) c[i] << 32) | (c[i + 1] & 0xFFFFFFFFL),
+                ((long) c[i + 2] << 32) | (c[i + 3] & 0xFFFFFFFFL),
+                c[i + 4]);
+        if (--size == 0) {
+            // reuse the last chunk
+            head = 0;
+            tail = 0;
+            while (chunks.size() > 1) {
+                chunks.pollFirst();
+            }
+        } else if (++head == CHUNK) {
+            chunks.pollFirst();
+            head = 0;
+        }
+        return id;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+}
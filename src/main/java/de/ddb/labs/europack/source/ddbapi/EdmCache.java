@@ -0,0 +1,137 @@
+/*
+ * Copyright 2019, 2025 Michael Büchner <m.buechner@dnb.de>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.labs.europack.source.ddbapi;
+
+import java.io.File;
+import java.util.regex.Pattern;
+import okhttp3.Cache;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Optional disk cache for the EDM of items (<code>/items/{id}/edm</code>), so
+ * a repeated export reads unchanged records locally. Enabled by
+ * <code>europack.http.cache</code> (directory); the size is limited by
+ * <code>europack.http.cache.size</code> (MB, default 1024), the least
+ * recently used records are evicted first.
+ * <p>
+ * Records are stored per URL and <code>Accept-Profile</code>. By default
+ * every cached record is revalidated with <code>If-None-Match</code> or
+ * <code>If-Modified-Since</code>; records without ETag and Last-Modified are
+ * not stored then. With <code>europack.http.cache.maxAge</code> (seconds) a
+ * record is used without asking the API while it is younger. Other responses,
+ * e.g. of the search, are never stored.
+ *
+ * @author Michael Büchner <m.buechner@dnb.de>
+ */
+final class EdmCache {
+
+    private final static Logger LOG = LoggerFactory.getLogger(EdmCache.class);
+    private static final Pattern EDM_PATH = Pattern.compile(".*/items/[^/]+/edm");
+    private final Cache cache;
+    private final long maxAge;
+
+    private EdmCache(Cache cache, long maxAge) {
+        this.cache = cache;
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * @return the cache as set by the properties or null, if not enabled
+     */
+    static EdmCache fromProperties() {
+        final String dir = System.getProperty("europack.http.cache", "");
+        if (dir.isBlank()) {
+            return null;
+        }
+        final long size = Math.max(1, Long.getLong("europack.http.cache.size", 1024L)) * 1024L * 1024L;
+        final long maxAge = Math.max(0, Long.getLong("europack.http.cache.maxAge", 0L));
+        LOG.info("HTTP cache for EDM: directory='{}', size='{} MB', maxAge='{} s'", dir, size / 1024 / 1024, maxAge);
+        return new EdmCache(new Cache(new File(dir), size), maxAge);
+    }
+
+    /**
+     * @param request
+     * @return true, if the EDM of an item is requested
+     */
+    static boolean isEdm(Request request) {
+        return request.method().equals("GET") && EDM_PATH.matcher(request.url().encodedPath()).matches();
+    }
+
+    Cache getCache() {
+        return cache;
+    }
+
+    /**
+     * @return application interceptor adding the profile to the cache key
+     */
+    Interceptor keyInterceptor() {
+        return chain -> {
+            final Request request = chain.request();
+            final String profile = request.header("Accept-Profile");
+            if (profile == null || profile.isBlank() || !isEdm(request)) {
+                return chain.proceed(request);
+            }
+            return chain.proceed(request.newBuilder()
+                    .cacheUrlOverride(request.url().newBuilder().addQueryParameter("profile", profile).build())
+                    .build());
+        };
+    }
+
+    /**
+     * @return network interceptor deciding which responses are stored and
+     * how long they are used without revalidation
+     */
+    Interceptor networkInterceptor() {
+        return chain -> {
+            final Response response = chain.proceed(chain.request());
+            // the headers of a 304 are merged into the cached record
+            final boolean notModified = response.code() == 304;
+            final String cacheControl;
+            if (!isEdm(response.request()) || !(response.isSuccessful() || notModified)) {
+                cacheControl = "no-store";
+            } else if (maxAge > 0) {
+                cacheControl = "max-age=" + maxAge;
+            } else if (notModified || response.header("ETag") != null || response.header("Last-Modified") != null) {
+                cacheControl = "no-cache";
+            } else {
+                // could not be revalidated
+                cacheControl = "no-store";
+            }
+            return response.newBuilder()
+                    .header("Cache-Control", cacheControl)
+                    .removeHeader("Pragma")
+                    .removeHeader("Expires")
+                    .build();
+        };
+    }
+
+    void logStatistics() {
+        LOG.info("HTTP cache for EDM: {} request(s), {} from network, {} from cache (revalidated or fresh), {} MB used",
+                cache.requestCount(), cache.networkCount(), cache.hitCount(), size() / 1024 / 1024);
+    }
+
+    private long size() {
+        try {
+            return cache.size();
+        } catch (Exception ex) {
+            return -1;
+        }
+    }
+}
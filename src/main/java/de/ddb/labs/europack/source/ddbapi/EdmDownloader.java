@@ -17,6 +17,7 @@ package de.ddb.labs.europack.source.ddbapi;
 
 import de.ddb.labs.europack.processor.EuropackFilterProcessor;
 import de.ddb.labs.europack.processor.EuropackDoc;
+import de.ddb.labs.europack.processor.FlowControl;
 import java.io.IOException;
 import java.net.ConnectException;
 import java.net.SocketException;
@@ -24,7 +25,6 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
-import javax.xml.parsers.ParserConfigurationException;
 import okhttp3.Call;
 import okhttp3.Callback;
 import okhttp3.OkHttpClient;
@@ -35,7 +35,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.Marker;
 import org.slf4j.MarkerFactory;
-import org.xml.sax.SAXException;
 
 /**
  * Elemental example for executing multiple GET requests sequentially.
@@ -48,9 +47,13 @@ public class EdmDownloader {
     private final OkHttpClient client;
     private final String cacheId;
     private final EuropackFilterProcessor epfp;
+    private final FlowControl flow;
     private int itemsToDownload, itemsDowloaded;
     private boolean done, canceled;
     private int errors;
+    // IDs submitted in this run, to drop duplicates before any request
+    private final DdbIdSet submitted;
+    private int duplicates;
     private static final ScheduledExecutorService RETRY_EXEC = Executors
             .newSingleThreadScheduledExecutor(new ThreadFactory() {
                 @Override
@@ -67,42 +70,70 @@ public class EdmDownloader {
         client = HttpClientProvider.getClient();
         this.cacheId = cacheId;
         this.epfp = epfp;
+        this.flow = epfp.getFlowControl();
         this.itemsDowloaded = 0;
         this.itemsToDownload = Integer.MAX_VALUE;
         this.done = true;
         this.canceled = false;
         this.errors = 0;
+        this.submitted = new DdbIdSet();
+        this.duplicates = 0;
         LOG.info("Download ID is {}. Cache opened..", cacheId);
     }
 
-    public synchronized void addDownloadJob(String ddbId, Request request, boolean removeFromErrors) {
-        if (canceled) {
+    /**
+     * Downloads a document and hands it to the processor. Blocks, while the
+     * processor's backlog is full.
+     *
+     * @param ddbId
+     * @param request
+     * @param removeFromErrors true for a retry of a failed document
+     */
+    public void addDownloadJob(String ddbId, Request request, boolean removeFromErrors) {
+        if (!flow.acquire(() -> isCanceled() || epfp.isCanceled())) {
             return;
         }
+        if (!submit(ddbId, request, removeFromErrors)) {
+            flow.release(0);
+        }
+    }
+
+    /**
+     * @return true, if the download has been started
+     */
+    private synchronized boolean submit(String ddbId, Request request, boolean removeFromErrors) {
+        if (canceled) {
+            return false;
+        }
+        final boolean first = !DdbId.isValid(ddbId) || submitted.add(DdbId.of(ddbId));
+        // the category tells which step counted the error
+        final ErrorRegistry.Category removed = removeFromErrors ? CacheManager.getInstance().removeErrorById(cacheId, ddbId) : null;
+        if (!first && removed == null) {
+            // submitted before and not failed (yet)
+            ++duplicates;
+            LOG.debug("{}: Duplicate dropped", ddbId);
+            if (!removeFromErrors && itemsDowloaded + duplicates >= itemsToDownload) {
+                // the last IDs of a run may be duplicates
+                done = true;
+            }
+            return false;
+        }
         try {
             client.newCall(request).enqueue(new MyCallback(ddbId, request, 0));
         } catch (Exception e) {
             LOG.error(FILE_MARKER, "{}", e.getMessage(), e);
+            return false;
         }
         this.done = false;
-        if (removeFromErrors) {
-            final boolean removed = CacheManager.getInstance().removeErrorById(cacheId, ddbId);
-            if (removed) {
-                if (errors > 0) {
-                    --errors;
-                }
-                final int epfpErrors = epfp.getErrors();
-                epfp.setErrors(Math.max(0, epfpErrors - 1));
+        if (removed == ErrorRegistry.Category.DOWNLOAD) {
+            if (errors > 0) {
+                --errors;
             }
+        } else if (removed != null) {
+            final int epfpErrors = epfp.getErrors();
+            epfp.setErrors(Math.max(0, epfpErrors - 1));
         }
-    }
-
-    /**
-     * Current processor backlog (added - processed).
-     * Used by producers (e.g., DDBIdGetter) to throttle submissions.
-     */
-    public synchronized int getBacklog() {
-        return epfp.getAddedJobs() - epfp.getProcessedJobs();
+        return true;
     }
 
     public void reset() {
@@ -111,6 +142,8 @@ public class EdmDownloader {
         this.done = true;
         this.canceled = false;
         this.errors = 0;
+        this.submitted.clear();
+        this.duplicates = 0;
     }
 
     public void dispose() {
@@ -134,6 +167,7 @@ public class EdmDownloader {
         @Override
         public void onFailure(Call call, IOException e) {
             if (isCanceled()) {
+                flow.release(0);
                 return;
             }
             final String msg = e.getMessage() == null ? "" : e.getMessage();
@@ -154,27 +188,33 @@ public class EdmDownloader {
                             client.newCall(request).enqueue(new MyCallback(id, request, attempt + 1));
                         } catch (Exception ex) {
                             LOG.error(FILE_MARKER, "{}: {}", id, ex.getLocalizedMessage(), ex);
-                            CacheManager.getInstance().addError(cacheId, id);
+                            CacheManager.getInstance().addError(cacheId, id, ErrorRegistry.Category.DOWNLOAD);
                             incErrors();
+                            flow.release(0);
                             finishing();
                         }
+                    } else {
+                        flow.release(0);
                     }
                 }, delay, TimeUnit.MILLISECONDS);
                 return;
             }
 
             LOG.error(FILE_MARKER, "{}: {}", id, msg, e);
-            CacheManager.getInstance().addError(cacheId, id);
+            CacheManager.getInstance().addError(cacheId, id, ErrorRegistry.Category.DOWNLOAD);
             incErrors();
+            flow.release(0);
             finishing();
         }
 
         @Override
         public void onResponse(Call call, Response response) throws IOException {
-            if (isCanceled()) {
-                return;
-            }
-            try {
+            // the processor gives the permit back from then on
+            boolean handedOver = false;
+            try (response) {
+                if (isCanceled()) {
+                    return;
+                }
                 final ResponseBody rb = response.body();
                 if (!response.isSuccessful()) {
                     throw new ConnectException(response.toString());
@@ -182,34 +222,42 @@ public class EdmDownloader {
                 if (rb == null) {
                     throw new ConnectException("Empty response body: " + response);
                 }
-                try (ResponseBody responseBody = rb) {
-                    // debugging
-                    // if (new Random().nextInt(100) < 1) {
-                    // throw new ConnectException("Statistical error for debugging thrown. " +
-                    // response.toString());
-                    // }
-                    final EuropackDoc ed = new EuropackDoc(id, responseBody.byteStream());
-                    CacheManager.getInstance().put(cacheId, ed);
-                    epfp.addJob(id);
-                }
-
-            } catch (ConnectException | IllegalArgumentException | SAXException | ParserConfigurationException ex) {
+                // debugging
+                // if (new Random().nextInt(100) < 1) {
+                // throw new ConnectException("Statistical error for debugging thrown. " +
+                // response.toString());
+                // }
+                // raw bytes only, the DOM is built (if at all) on a processor thread
+                // (may fail with a read timeout or a reset connection)
+                final EuropackDoc ed = new EuropackDoc(id, rb.bytes());
+                epfp.addJob(ed);
+                handedOver = true;
+            } catch (IOException | RuntimeException ex) {
                 LOG.error(FILE_MARKER, "{}: {}", id, ex.getMessage());
-                CacheManager.getInstance().addError(cacheId, id);
+                CacheManager.getInstance().addError(cacheId, id, ErrorRegistry.Category.DOWNLOAD);
                 incErrors();
             } finally {
-                finishing();
+                if (!handedOver) {
+                    flow.release(0);
+                }
+                if (!isCanceled()) {
+                    finishing();
+                }
             }
         }
 
         private void finishing() {
             final int getItemsDowloaded = incItemsDowloaded();
             final int getItemsToDownload = getItemsToDownload();
-            if (getItemsDowloaded % 1000 == 0 || getItemsDowloaded >= getItemsToDownload) {
+            final int getDuplicates = getDuplicates();
+            if (getItemsDowloaded % 1000 == 0 || getItemsDowloaded + getDuplicates >= getItemsToDownload) {
                 LOG.info(FILE_MARKER, "{} of {} downloaded", getItemsDowloaded,
                         (getItemsToDownload == Integer.MAX_VALUE ? "?" : getItemsToDownload));
             }
-            if (getItemsDowloaded >= getItemsToDownload) {
+            if (getItemsDowloaded + getDuplicates >= getItemsToDownload) {
+                if (getDuplicates > 0) {
+                    LOG.info(FILE_MARKER, "{} duplicate ID(s) dropped", getDuplicates);
+                }
                 setDone(true);
             }
             // Update domain metrics snapshot
@@ -275,6 +323,13 @@ public class EdmDownloader {
         ++errors;
     }
 
+    /**
+     * @return number of IDs dropped, because they had been submitted before
+     */
+    public synchronized int getDuplicates() {
+        return duplicates;
+    }
+
     /**
      * @param itemsDowloaded the itemsDowloaded to set
      */
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2019, 2025 Michael Büchner <m.buechner@dnb.de>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.labs.europack.source.ddbapi;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * IDs of the documents which failed in a run, with the step they failed in.
+ * Adding and removing an ID is O(1) and needs no lock; an ID is registered
+ * once, a later error replaces the category of an earlier one. DDB IDs are
+ * kept packed as {@link DdbId}.
+ * <p>
+ * Retries are done in rounds: {@link #retry()} returns the IDs registered
+ * before the round started, without copying them. IDs failing again during
+ * the round are registered for the next one.
+ *
+ * @author Michael Büchner <m.buechner@dnb.de>
+ */
+public class ErrorRegistry {
+
+    public enum Category {
+        DOWNLOAD, PARSE, FILTER, SAVE;
+    }
+
+    // DdbId or, for anything else, String
+    private final Map<Object, Entry> errors;
+    private final LongAdder[] counts;
+    private final AtomicInteger round;
+
+    private record Entry(Category category, int round) {
+
+    }
+
+    public ErrorRegistry() {
+        this.errors = new ConcurrentHashMap<>();
+        this.counts = new LongAdder[Category.values().length];
+        for (int i = 0; i < counts.length; ++i) {
+            counts[i] = new LongAdder();
+        }
+        this.round = new AtomicInteger();
+    }
+
+    /**
+     * @param id document ID
+     * @param category step the document failed in
+     */
+    public void add(String id, Category category) {
+        if (id == null || id.isBlank() || category == null) {
+            return;
+        }
+        final Entry previous = errors.put(key(id), new Entry(category, round.get()));
+        counts[category.ordinal()].increment();
+        if (previous != null) {
+            counts[previous.category().ordinal()].decrement();
+        }
+    }
+
+    /**
+     * @param id document ID
+     * @return category of the removed error or null, if the ID was not
+     * registered
+     */
+    public Category remove(String id) {
+        if (id == null) {
+            return null;
+        }
+        final Entry removed = errors.remove(key(id));
+        if (removed == null) {
+            return null;
+        }
+        counts[removed.category().ordinal()].decrement();
+        return removed.category();
+    }
+
+    /**
+     * @param id document ID
+     * @return category of the error or null, if the ID is not registered
+     */
+    public Category get(String id) {
+        final Entry e = id == null ? null : errors.get(key(id));
+        return e == null ? null : e.category();
+    }
+
+    /**
+     * @return number of registered errors
+     */
+    public int size() {
+        return errors.size();
+    }
+
+    public boolean isEmpty() {
+        return errors.isEmpty();
+    }
+
+    /**
+     * @param category
+     * @return number of registered errors of the category
+     */
+    public int size(Category category) {
+        return counts[category.ordinal()].intValue();
+    }
+
+    /**
+     * Starts a new retry round.
+     *
+     * @return view of the IDs registered before this call; IDs removed in the
+     * meantime are skipped
+     */
+    public Iterable<String> retry() {
+        final int before = round.getAndIncrement() + 1;
+        return () -> new Iterator<String>() {
+            private final Iterator<Map.Entry<Object, Entry>> it = errors.entrySet().iterator();
+            private String next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && it.hasNext()) {
+                    final Map.Entry<Object, Entry> e = it.next();
+                    if (e.getValue().round() < before) {
+                        next = e.getKey().toString();
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                final String id = next;
+                next = null;
+                return id;
+            }
+        };
+    }
+
+    private static Object key(String id) {
+        return DdbId.isValid(id) ? DdbId.of(id) : id;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        for (Category c : Category.values()) {
+            sb.append(sb.length() == 0 ? "" : ", ").append(c.name().toLowerCase()).append(": ").append(size(c));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2019, 2025 Michael Büchner <m.buechner@dnb.de>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.labs.europack.source.ddbapi;
+
+import de.ddb.labs.europack.processor.EuropackDoc;
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import javax.xml.transform.TransformerException;
+import org.ehcache.spi.serialization.Serializer;
+import org.ehcache.spi.serialization.SerializerException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Serializer of {@link EuropackDoc} for the off-heap and disk tiers of the
+ * cache. Instead of Java serialization of the object graph (a whole DOM, if
+ * parsed) it stores status, ID and the document as deflated XML:
+ * <pre>
+ * byte version, byte status, int id length, id (UTF-8),
+ * int XML length (-1 for none), deflated XML
+ * </pre>
+ * The XML is stored as the document holds it (see
+ * {@link EuropackDoc#getData()}), not canonicalized: a document which has not
+ * been parsed yet would have to be parsed for that, and without filters the
+ * sinks write the documents byte by byte as downloaded.
+ *
+ * @author Michael Büchner <m.buechner@dnb.de>
+ */
+public class EuropackDocSerializer implements Serializer<EuropackDoc> {
+
+    private final static Logger LOG = LoggerFactory.getLogger(EuropackDocSerializer.class);
+    private static final byte VERSION = 1;
+    private static final int HEADER = 1 + 1 + 4 + 4;
+    private static final int POOL = Math.max(2, Runtime.getRuntime().availableProcessors());
+    // statistics of all instances
+    private static final LongAdder serialized = new LongAdder();
+    private static final LongAdder serializeNanos = new LongAdder();
+    private static final LongAdder xmlBytes = new LongAdder();
+    private static final LongAdder storedBytes = new LongAdder();
+    private static final LongAdder read = new LongAdder();
+    private static final LongAdder readNanos = new LongAdder();
+    // a few idle (de)compressors; not per thread, as the threads may be
+    // virtual ones, and the native memory of one is freed by end() only
+    private final BlockingQueue<Deflater> deflaters;
+    private final BlockingQueue<Inflater> inflaters;
+
+    public EuropackDocSerializer() {
+        this.deflaters = new ArrayBlockingQueue<>(POOL);
+        this.inflaters = new ArrayBlockingQueue<>(POOL);
+    }
+
+    /**
+     * Constructor used by Ehcache
+     *
+     * @param classLoader not needed
+     */
+    public EuropackDocSerializer(ClassLoader classLoader) {
+        this();
+    }
+
+    @Override
+    public ByteBuffer serialize(EuropackDoc ed) throws SerializerException {
+        final long start = System.nanoTime();
+        final byte[] xml;
+        try {
+            xml = ed.getData();
+        } catch (TransformerException ex) {
+            throw new SerializerException("Cannot serialize " + ed.getId(), ex);
+        }
+        final byte[] id = ed.getId().getBytes(StandardCharsets.UTF_8);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(HEADER + id.length + (xml == null ? 0 : xml.length / 4));
+        final ByteBuffer header = ByteBuffer.allocate(HEADER + id.length)
+                .put(VERSION)
+                .put((byte) ed.getStatus().ordinal())
+                .putInt(id.length)
+                .put(id)
+                .putInt(xml == null ? -1 : xml.length);
+        out.write(header.array(), 0, header.position());
+        if (xml != null) {
+            Deflater deflater = deflaters.poll();
+            if (deflater == null) {
+                deflater = new Deflater(Deflater.BEST_SPEED);
+            }
+            try {
+                deflater.setInput(xml);
+                deflater.finish();
+                final byte[] buffer = new byte[8192];
+                while (!deflater.finished()) {
+                    final int n = deflater.deflate(buffer);
+                    out.write(buffer, 0, n);
+                }
+            } finally {
+                deflater.reset();
+                if (!deflaters.offer(deflater)) {
+                    deflater.end();
+                }
+            }
+            xmlBytes.add(xml.length);
+        }
+        serialized.increment();
+        storedBytes.add(out.size());
+        serializeNanos.add(System.nanoTime() - start);
+        return ByteBuffer.wrap(out.toByteArray());
+    }
+
+    @Override
+    public EuropackDoc read(ByteBuffer binary) throws SerializerException {
+        final long start = System.nanoTime();
+        final EuropackDoc.Status status;
+        final String id;
+        final int length;
+        try {
+            if (binary.get() != VERSION) {
+                throw new SerializerException("Unknown format of a cached document");
+            }
+            status = EuropackDoc.Status.values()[binary.get()];
+            final byte[] b = new byte[binary.getInt()];
+            binary.get(b);
+            id = new String(b, StandardCharsets.UTF_8);
+            length = binary.getInt();
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException ex) {
+            throw new SerializerException("Corrupt header of a cached document", ex);
+        }
+        final EuropackDoc ed;
+        if (length < 0) {
+            ed = new EuropackDoc(id);
+        } else {
+            final byte[] xml = new byte[length];
+            Inflater inflater = inflaters.poll();
+            if (inflater == null) {
+                inflater = new Inflater();
+            }
+            try {
+                inflater.setInput(binary);
+                int n = 0;
+                while (n < length) {
+                    final int m = inflater.inflate(xml, n, length - n);
+                    // all input is there, so no progress means truncated or
+                    // otherwise unusable (finished, needsInput, needsDictionary)
+                    if (m == 0) {
+                        throw new DataFormatException(n + " of " + length + " byte(s) inflated");
+                    }
+                    n += m;
+                }
+                // the checksum trailer follows the data, and nothing beyond it
+                if (!inflater.finished() && (inflater.inflate(new byte[1]) != 0 || !inflater.finished())) {
+                    throw new DataFormatException("No end of the deflated stream after " + length + " byte(s)");
+                }
+            } catch (DataFormatException ex) {
+                throw new SerializerException("Corrupt cached document " + id, ex);
+            } finally {
+                inflater.reset();
+                if (!inflaters.offer(inflater)) {
+                    inflater.end();
+                }
+            }
+            ed = new EuropackDoc(id, xml);
+        }
+        ed.setStatus(status);
+        read.increment();
+        readNanos.add(System.nanoTime() - start);
+        return ed;
+    }
+
+    @Override
+    public boolean equals(EuropackDoc ed, ByteBuffer binary) throws SerializerException {
+        final EuropackDoc other = read(binary);
+        try {
+            return ed.getId().equals(other.getId())
+                    && ed.getStatus() == other.getStatus()
+                    && Arrays.equals(ed.getData(), other.getData());
+        } catch (TransformerException ex) {
+            throw new SerializerException("Cannot serialize " + ed.getId(), ex);
+        }
+    }
+
+    /**
+     * Logs number, time and size of the serialized and read documents.
+     */
+    public static void logStatistics() {
+        final long s = serialized.sum();
+        final long r = read.sum();
+        if (s == 0 && r == 0) {
+            return;
+        }
+        LOG.info("Cache serializer: {} document(s) serialized in {} ms, {} KB XML stored as {} KB; {} document(s) read in {} ms",
+                s,
+                TimeUnit.NANOSECONDS.toMillis(serializeNanos.sum()),
+                xmlBytes.sum() / 1024,
+                storedBytes.sum() / 1024,
+                r,
+                TimeUnit.NANOSECONDS.toMillis(readNanos.sum()));
+    }
+}
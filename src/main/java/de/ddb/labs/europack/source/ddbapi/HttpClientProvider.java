@@ -15,6 +15,7 @@
  */
 package de.ddb.labs.europack.source.ddbapi;
 
+import de.ddb.labs.europack.processor.ThreadMode;
 import java.util.concurrent.TimeUnit;
 import okhttp3.ConnectionPool;
 import okhttp3.Dispatcher;
@@ -24,10 +25,9 @@ import okhttp3.Request;
 
 public final class HttpClientProvider {
 
-    // Conservative concurrency to prevent ephemeral port exhaustion on Windows
-    // Allow 8 parallel connections while relying on connection reuse
-    private static final int MAX_REQUESTS = 8;
-    private static final int MAX_REQUESTS_PER_HOST = 8;
+    // Parallel requests start at 8 and are adapted to latency and errors
+    // (see ConcurrencyController); connection reuse keeps the number of
+    // ephemeral ports low, which matters on Windows
     private static final int CONNECT_TIMEOUT_SEC = 2;
     private static final int WRITE_TIMEOUT_SEC = 10;
     private static final int READ_TIMEOUT_SEC = 16;
@@ -36,11 +36,15 @@ public final class HttpClientProvider {
             "m.buechner@dnb.de");
 
     private static final OkHttpClient CLIENT;
+    private static final ConcurrencyController CONTROLLER;
+    // null, if not enabled
+    private static final EdmCache EDM_CACHE;
 
     static {
-        final Dispatcher dispatcher = new Dispatcher();
-        dispatcher.setMaxRequests(MAX_REQUESTS);
-        dispatcher.setMaxRequestsPerHost(MAX_REQUESTS_PER_HOST);
+        final Dispatcher dispatcher = newDispatcher(ThreadMode.get());
+        CONTROLLER = new ConcurrencyController(dispatcher);
+        dispatcher.setMaxRequests(CONTROLLER.getLimit());
+        dispatcher.setMaxRequestsPerHost(CONTROLLER.getLimit());
 
         final Interceptor uaInterceptor = chain -> {
             final Request original = chain.request();
@@ -56,7 +60,9 @@ public final class HttpClientProvider {
             return chain.proceed(withUa);
         };
 
-        CLIENT = new OkHttpClient.Builder()
+        EDM_CACHE = EdmCache.fromProperties();
+
+        final OkHttpClient.Builder builder = new OkHttpClient.Builder()
                 .connectTimeout(CONNECT_TIMEOUT_SEC, TimeUnit.SECONDS)
                 .writeTimeout(WRITE_TIMEOUT_SEC, TimeUnit.SECONDS)
                 .readTimeout(READ_TIMEOUT_SEC, TimeUnit.SECONDS)
@@ -65,9 +71,14 @@ public final class HttpClientProvider {
                 .followSslRedirects(true)
                 .addInterceptor(uaInterceptor)
                 .dispatcher(dispatcher)
-                .connectionPool(new ConnectionPool(32, 10, TimeUnit.MINUTES))
-                .addInterceptor(new MetricsInterceptor())
-                .build();
+                .connectionPool(new ConnectionPool(Math.max(32, CONTROLLER.getMax()), 10, TimeUnit.MINUTES))
+                .addInterceptor(new MetricsInterceptor(CONTROLLER));
+        if (EDM_CACHE != null) {
+            builder.cache(EDM_CACHE.getCache())
+                    .addInterceptor(EDM_CACHE.keyInterceptor())
+                    .addNetworkInterceptor(EDM_CACHE.networkInterceptor());
+        }
+        CLIENT = builder.build();
 
         // Ensure we release resources on JVM shutdown
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
@@ -92,6 +103,19 @@ public final class HttpClientProvider {
     private HttpClientProvider() {
     }
 
+    /**
+     * Calls run on virtual threads, if enabled; the limits of the dispatcher
+     * apply either way.
+     *
+     * @param mode
+     * @return dispatcher of the enqueued calls
+     */
+    static Dispatcher newDispatcher(ThreadMode mode) {
+        return mode == ThreadMode.VIRTUAL
+                ? new Dispatcher(ThreadMode.newVirtualThreadPerTaskExecutor("europack-http"))
+                : new Dispatcher();
+    }
+
     static OkHttpClient getClient() {
         return CLIENT;
     }
@@ -100,6 +124,9 @@ public final class HttpClientProvider {
     public static void shutdownMetrics() {
         // Emit a final summary before shutting metrics down
         HttpMetrics.logSummary("manual-shutdown");
+        if (EDM_CACHE != null) {
+            EDM_CACHE.logStatistics();
+        }
         HttpMetrics.shutdown();
         // Reset counters so the next run starts clean
         HttpMetrics.reset();
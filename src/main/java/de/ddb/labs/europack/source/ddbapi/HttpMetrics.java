@@ -221,14 +221,14 @@ final class HttpMetrics {
                 final double successPct = pct(success, domainTotalItems);
 
                 LOG.info(
-                        "stats: items total={} processed={} ({}%) remaining={} success={} ({}%) downloaded={} ({}%) errors={} ({}%) [download={}, process={}] | http: requests={} inflight={} queued={} 2xx={} ({}% of items) 4xx={} ({}% of items) 406={} 5xx={} ({}% of items) exceptions: timeouts={} connect={} ssl={} other={}",
+                        "stats: items total={} processed={} ({}%) remaining={} success={} ({}%) downloaded={} ({}%) errors={} ({}%) [download={}, process={}] | http: requests={} inflight={} queued={} limit={} 2xx={} ({}% of items) 4xx={} ({}% of items) 406={} 5xx={} ({}% of items) exceptions: timeouts={} connect={} ssl={} other={}",
                         domainTotalItems,
                         domainProcessed, fmt(domProcessedPct),
                         remaining,
                         success, fmt(successPct),
                         domainDownloaded, fmt(domDownloadedPct),
                         domainErrors, fmt(domErrorsPct), domainDownloadErrors, domainProcessErrors,
-                        t, running, queued,
+                        t, running, queued, d.getMaxRequests(),
                         c2, fmt(h2pct), c4, fmt(h4pct), c406, c5, fmt(h5pct),
                         xt, xc, xs, xo);
 
@@ -266,11 +266,11 @@ final class HttpMetrics {
             final int success = Math.max(domainProcessed - domainProcessErrors, 0);
 
             LOG.info(
-                    "summary ({}): items total={} processed={} remaining={} success={} downloaded={} errors={} [download={}, process={}] | http: requests={} inflight={} queued={} 2xx={} 4xx={} 406={} 5xx={} exceptions: timeouts={} connect={} ssl={} other={}",
+                    "summary ({}): items total={} processed={} remaining={} success={} downloaded={} errors={} [download={}, process={}] | http: requests={} inflight={} queued={} limit={} 2xx={} 4xx={} 406={} 5xx={} exceptions: timeouts={} connect={} ssl={} other={}",
                     reason,
                     domainTotalItems, domainProcessed, remaining, success,
                     domainDownloaded, domainErrors, domainDownloadErrors, domainProcessErrors,
-                    t, running, queued,
+                    t, running, queued, d.getMaxRequests(),
                     c2, c4, c406, c5,
                     xt, xc, xs, xo);
         } catch (Throwable ignored) {
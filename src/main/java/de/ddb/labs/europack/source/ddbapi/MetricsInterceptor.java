@@ -20,22 +20,44 @@ import okhttp3.Interceptor;
 import okhttp3.Response;
 
 final class MetricsInterceptor implements Interceptor {
+
+    private final ConcurrencyController controller;
+
+    MetricsInterceptor(ConcurrencyController controller) {
+        this.controller = controller;
+    }
+
     @Override
     public Response intercept(Chain chain) throws IOException {
         final long t0 = System.nanoTime();
         try {
             final Response r = chain.proceed(chain.request());
+            // served from the EDM cache without asking the API: no server
+            // latency to measure (counted by the cache statistics)
+            if (r.networkResponse() == null && r.cacheResponse() != null) {
+                return r;
+            }
             final long durMs = Math.max(0L, (System.nanoTime() - t0) / 1_000_000L);
             HttpMetrics.recordStatus(r.code(), durMs);
+            if (EdmCache.isEdm(chain.request())) {
+                controller.recordStatus(r.code(), durMs);
+            }
             return r;
         } catch (IOException ex) {
             final long durMs = Math.max(0L, (System.nanoTime() - t0) / 1_000_000L);
             HttpMetrics.recordException(ex, durMs);
+            // a canceled call says nothing about the server
+            if (!chain.call().isCanceled() && EdmCache.isEdm(chain.request())) {
+                controller.recordException(durMs);
+            }
             throw ex;
         } catch (RuntimeException ex) {
             final long durMs = Math.max(0L, (System.nanoTime() - t0) / 1_000_000L);
             // Treat unexpected runtime exceptions as "other" for metrics
             HttpMetrics.recordException(new IOException(ex.getMessage(), ex), durMs);
+            if (EdmCache.isEdm(chain.request())) {
+                controller.recordException(durMs);
+            }
             throw ex;
         }
     }
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2019, 2025 Michael Büchner <m.buechner@dnb.de>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.labs.europack.source.ddbapi;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.CharBuffer;
+import java.util.function.Consumer;
+
+/**
+ * Reads a response of the search API as a stream, without building a tree.
+ * Only <code>numberOfResults</code>, <code>nextCursorMark</code> and
+ * <code>results[].docs[].id</code> are read, everything else is skipped.
+ *
+ * @author Michael Büchner <m.buechner@dnb.de>
+ */
+final class SearchResponse {
+
+    private int numberOfResults = -1;
+    private String nextCursorMark;
+
+    private SearchResponse() {
+    }
+
+    /**
+     * @param factory
+     * @param in the response
+     * @param ids gets the ID of every document; the characters are valid
+     * during the call only
+     * @return the response
+     * @throws IOException
+     */
+    static SearchResponse read(JsonFactory factory, InputStream in, Consumer<CharSequence> ids) throws IOException {
+        final SearchResponse response = new SearchResponse();
+        try (final JsonParser p = factory.createParser(in)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Search response is not a JSON object");
+            }
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                final String name = p.currentName();
+                final JsonToken value = p.nextToken();
+                switch (name) {
+                    case "numberOfResults" ->
+                        response.numberOfResults = p.getValueAsInt(-1);
+                    case "nextCursorMark" ->
+                        response.nextCursorMark = p.getValueAsString();
+                    case "results" -> {
+                        if (value == JsonToken.START_ARRAY) {
+                            readResults(p, ids);
+                        }
+                    }
+                    default -> {
+                    }
+                }
+                // no-op after a scalar or a complete array
+                p.skipChildren();
+            }
+        }
+        return response;
+    }
+
+    // results: [{..., docs: [...]}, ...]
+    private static void readResults(JsonParser p, Consumer<CharSequence> ids) throws IOException {
+        for (JsonToken t = p.nextToken(); t != null && t != JsonToken.END_ARRAY; t = p.nextToken()) {
+            if (t != JsonToken.START_OBJECT) {
+                p.skipChildren();
+                continue;
+            }
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                final String name = p.currentName();
+                if (p.nextToken() == JsonToken.START_ARRAY && name.equals("docs")) {
+                    readDocs(p, ids);
+                } else {
+                    p.skipChildren();
+                }
+            }
+        }
+    }
+
+    // docs: [{id: "...", ...}, ...]
+    private static void readDocs(JsonParser p, Consumer<CharSequence> ids) throws IOException {
+        for (JsonToken t = p.nextToken(); t != null && t != JsonToken.END_ARRAY; t = p.nextToken()) {
+            if (t != JsonToken.START_OBJECT) {
+                p.skipChildren();
+                continue;
+            }
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                final String name = p.currentName();
+                if (p.nextToken() == JsonToken.VALUE_STRING && name.equals("id")) {
+                    ids.accept(CharBuffer.wrap(p.getTextCharacters(), p.getTextOffset(), p.getTextLength()));
+                } else {
+                    p.skipChildren();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return number of results of the search or -1, if missing
+     */
+    int getNumberOfResults() {
+        return numberOfResults;
+    }
+
+    /**
+     * @return next cursor mark or null, if missing
+     */
+    String getNextCursorMark() {
+        return nextCursorMark;
+    }
+}
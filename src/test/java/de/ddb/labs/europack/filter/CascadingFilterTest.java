@@ -0,0 +1,162 @@
+/*
+ * Copyright 2019, 2025 Michael Büchner <m.buechner@dnb.de>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.labs.europack.filter;
+
+import de.ddb.labs.europack.processor.EuropackDoc;
+import de.ddb.labs.europack.processor.StreamingFilterEngine;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * A filter dropping a property also drops the contextual resources which only
+ * that property pointed to, on its own as well as in the streaming engine.
+ * Filters which do not cascade keep them.
+ *
+ * @author Michael Büchner <m.buechner@dnb.de>
+ */
+public class CascadingFilterTest {
+
+    private final static String RDF = "http://www.w3.org/1999/02/22-rdf-syntax-ns#";
+    private final static String RECORD = "/edm/record.xml";
+
+    @Test
+    public void testDcType() throws Exception {
+        assertRemoves(new DcTypeFilter(), "http://ddb.vocnet.org/medientyp/mt002");
+    }
+
+    @Test
+    public void testDctermsSubject() throws Exception {
+        assertRemoves(new DctermsSubjectFilter(), "http://example.org/concept/s1");
+    }
+
+    @Test
+    public void testDctermsSubjectUriWithQuote() throws Exception {
+        assertRemovesFrom("/edm/record-quote.xml", new DctermsSubjectFilter(),
+                "http://example.org/concept/s1",
+                "http://example.org/concept/it's");
+    }
+
+    @Test
+    public void testEdmHasTypeKeepsConceptReferencedElsewhere() throws Exception {
+        // dc:subject still points to the concept
+        assertRemoves(new EdmHasTypeFilter());
+    }
+
+    @Test
+    public void testDdbAggregator() throws Exception {
+        assertRemoves(new DdbAggregatorFilter(), "http://example.org/agent/aggr");
+    }
+
+    @Test
+    public void testEdmDataProvider() throws Exception {
+        assertRemoves(new EdmDataProviderFilter(),
+                "http://example.org/agent/dp",
+                "http://example.org/agent/dpparent",
+                "http://example.org/concept/orgtype");
+    }
+
+    @Test
+    public void testEdmHasMet() throws Exception {
+        assertRemoves(new EdmHasMetFilter(),
+                "http://example.org/event/e1",
+                "http://example.org/agent/p1",
+                "http://example.org/place/pl1",
+                "http://example.org/ts/ts1");
+    }
+
+    @Test
+    public void testDctermsRightsDoesNotCascade() throws Exception {
+        final Set<String> expected = resources(read());
+
+        final EuropackDoc dom = new EuropackDoc("cascade", read());
+        final FilterInterface xsl = new DctermsRightsFilter();
+        xsl.init();
+        xsl.filter(dom);
+        assertEquals(expected, resources(dom.getData()));
+
+        final EuropackDoc stax = new EuropackDoc("cascade", read());
+        final FilterInterface fused = new FusedXslFilter(List.of("DctermsRightsFilter"));
+        fused.init();
+        new StreamingFilterEngine().filter(stax, List.of(fused));
+        assertEquals(expected, resources(stax.getData()));
+    }
+
+    private static void assertRemoves(StreamFilterInterface filter, String... removed) throws Exception {
+        assertRemovesFrom(RECORD, filter, removed);
+    }
+
+    /**
+     * Runs the filter on a record, alone and in the streaming engine.
+     *
+     * @param record resource name of the record
+     * @param filter
+     * @param removed rdf:about of the resources the filter must remove
+     * @throws Exception
+     */
+    private static void assertRemovesFrom(String record, StreamFilterInterface filter, String... removed) throws Exception {
+        filter.init();
+        assertTrue(filter.isCascading());
+        final Set<String> expected = resources(read(record));
+        for (String about : removed) {
+            assertTrue(expected.remove(about), about);
+        }
+
+        final EuropackDoc dom = new EuropackDoc("cascade", read(record));
+        filter.filter(dom);
+        assertEquals(expected, resources(dom.getData()), "DOM");
+
+        final EuropackDoc stax = new EuropackDoc("cascade", read(record));
+        new StreamingFilterEngine().filter(stax, List.of(filter));
+        assertEquals(expected, resources(stax.getData()), "StAX");
+    }
+
+    private static byte[] read() throws Exception {
+        return read(RECORD);
+    }
+
+    private static byte[] read(String record) throws Exception {
+        try (InputStream is = CascadingFilterTest.class.getResourceAsStream(record)) {
+            return is.readAllBytes();
+        }
+    }
+
+    /**
+     * @param data
+     * @return rdf:about of the top level resources
+     * @throws Exception
+     */
+    private static Set<String> resources(byte[] data) throws Exception {
+        final DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+        dbf.setNamespaceAware(true);
+        final Node rdf = dbf.newDocumentBuilder().parse(new ByteArrayInputStream(data)).getElementsByTagNameNS(RDF, "RDF").item(0);
+        final Set<String> about = new HashSet<>();
+        for (Node n = rdf.getFirstChild(); n != null; n = n.getNextSibling()) {
+            if (n instanceof Element e && e.hasAttributeNS(RDF, "about")) {
+                about.add(e.getAttributeNS(RDF, "about"));
+            }
+        }
+        return about;
+    }
+}
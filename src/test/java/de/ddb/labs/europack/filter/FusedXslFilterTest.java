@@ -0,0 +1,105 @@
+/*
+ * Copyright 2019, 2025 Michael Büchner <m.buechner@dnb.de>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.labs.europack.filter;
+
+import de.ddb.labs.europack.processor.EuropackDoc;
+import de.ddb.labs.europack.processor.StreamingFilterEngine;
+import static de.ddb.labs.europack.processor.StreamingFilterEngineTest.canonicalize;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ * The fused stylesheet, in the DOM and in the streaming engine, gives the
+ * same document as the stylesheets of the filters one after the other.
+ *
+ * @author Michael Büchner <m.buechner@dnb.de>
+ */
+public class FusedXslFilterTest {
+
+    private final static List<String> FUSABLE = List.of(
+            "DcDescriptionFilter",
+            "DctermsLanguageFilter",
+            "DctermsLinguisticSystemFilter",
+            "DctermsRightsFilter",
+            "DdbAggregationEntityFilter",
+            "DdbHierarchyPositionFilter",
+            "DdbHierarchyTypeFilter");
+
+    static Stream<Arguments> chains() {
+        final List<Arguments> chains = new ArrayList<>();
+        for (String record : List.of("/edm/record.xml", "/edm/record-quote.xml")) {
+            chains.add(Arguments.of(record, FUSABLE));
+            chains.add(Arguments.of(record, FUSABLE.reversed()));
+            for (String f : FUSABLE) {
+                chains.add(Arguments.of(record, List.of(f)));
+            }
+        }
+        return chains.stream();
+    }
+
+    @Test
+    public void testIsFusable() {
+        for (String f : FUSABLE) {
+            assertTrue(FusedXslFilter.isFusable(f), f);
+        }
+        // not only empty templates
+        assertTrue(FusedXslFilter.hasStylesheet("ReformatterFilter"));
+        assertFalse(FusedXslFilter.isFusable("ReformatterFilter"));
+        assertFalse(FusedXslFilter.hasStylesheet("DcTypeFilter"));
+        assertFalse(FusedXslFilter.isFusable("DcTypeFilter"));
+    }
+
+    @ParameterizedTest
+    @MethodSource("chains")
+    public void testSameAsUnfused(String record, List<String> filters) throws Exception {
+        final EuropackDoc unfused = new EuropackDoc(record, read(record));
+        for (String name : filters) {
+            final FilterInterface f = (FilterInterface) Class.forName(FilterInterface.class.getPackageName() + "." + name)
+                    .getDeclaredConstructor().newInstance();
+            f.init();
+            f.filter(unfused);
+        }
+        final String expected = canonicalize(unfused.getData());
+        assertNotEquals(canonicalize(read(record)), expected);
+
+        final FusedXslFilter fused = new FusedXslFilter(filters);
+        fused.init();
+        final EuropackDoc dom = new EuropackDoc(record, read(record));
+        fused.filter(dom);
+        assertEquals(expected, canonicalize(dom.getData()), "DOM");
+
+        final EuropackDoc stax = new EuropackDoc(record, read(record));
+        new StreamingFilterEngine().filter(stax, List.of(fused));
+        assertEquals(EuropackDoc.Status.VALID, stax.getStatus());
+        assertEquals(expected, canonicalize(stax.getData()), "StAX");
+    }
+
+    private static byte[] read(String record) throws Exception {
+        try (InputStream is = FusedXslFilterTest.class.getResourceAsStream(record)) {
+            return is.readAllBytes();
+        }
+    }
+}
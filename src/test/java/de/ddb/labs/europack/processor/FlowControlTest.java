@@ -0,0 +1,100 @@
+/*
+ * Copyright 2019, 2025 Michael Büchner <m.buechner@dnb.de>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.labs.europack.processor;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+/**
+ *
+ * @author Michael Büchner <m.buechner@dnb.de>
+ */
+@Timeout(10)
+public class FlowControlTest {
+
+    @Test
+    public void testAcquireBlocksAtLimit() throws Exception {
+        final FlowControl flow = new FlowControl(2, 0);
+        assertTrue(flow.acquire(() -> false));
+        assertTrue(flow.acquire(() -> false));
+
+        final CompletableFuture<Boolean> third = CompletableFuture.supplyAsync(() -> flow.acquire(() -> false));
+        Thread.sleep(200);
+        assertFalse(third.isDone());
+        flow.release(0);
+        assertTrue(third.get(5, TimeUnit.SECONDS));
+        assertEquals(2, flow.getRecords());
+    }
+
+    @Test
+    public void testAcquireBlocksAtByteLimit() throws Exception {
+        final FlowControl flow = new FlowControl(10, 100);
+        assertTrue(flow.acquire(() -> false));
+        flow.addBytes(100);
+        assertFalse(flow.acquire(() -> true));
+        flow.release(100);
+        assertEquals(0, flow.getBytes());
+        assertTrue(flow.acquire(() -> false));
+    }
+
+    @Test
+    public void testReleaseTwice() {
+        final FlowControl flow = new FlowControl(10, 0);
+        flow.acquire(() -> false);
+        flow.addBytes(10);
+        assertThrows(IllegalStateException.class, () -> flow.release(20));
+        flow.release(10);
+        assertThrows(IllegalStateException.class, () -> flow.release(0));
+        assertEquals(0, flow.getRecords());
+        assertEquals(0, flow.getBytes());
+    }
+
+    @Test
+    public void testAwaitIdleWokenByLastRelease() throws Exception {
+        final FlowControl flow = new FlowControl(10, 0);
+        assertTrue(flow.awaitIdle(() -> false));
+        flow.acquire(() -> false);
+        flow.acquire(() -> false);
+
+        final CompletableFuture<Boolean> idle = CompletableFuture.supplyAsync(() -> flow.awaitIdle(() -> false));
+        flow.release(0);
+        Thread.sleep(200);
+        assertFalse(idle.isDone());
+        flow.release(0);
+        assertTrue(idle.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testAwaitIdleStalled() {
+        final FlowControl flow = new FlowControl(10, 0, TimeUnit.MILLISECONDS.toNanos(100));
+        flow.acquire(() -> false);
+        assertFalse(flow.awaitIdle(() -> false));
+        assertEquals(1, flow.getRecords());
+    }
+
+    @Test
+    public void testAwaitIdleCanceled() {
+        final FlowControl flow = new FlowControl(10, 0);
+        flow.acquire(() -> false);
+        assertFalse(flow.awaitIdle(() -> true));
+    }
+}
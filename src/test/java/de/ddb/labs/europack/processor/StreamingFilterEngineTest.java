@@ -0,0 +1,155 @@
+/*
+ * Copyright 2019, 2025 Michael Büchner <m.buechner@dnb.de>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.labs.europack.processor;
+
+import de.ddb.labs.europack.filter.FilterInterface;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import javax.xml.crypto.OctetStreamData;
+import javax.xml.crypto.dsig.CanonicalizationMethod;
+import javax.xml.crypto.dsig.XMLSignatureFactory;
+import javax.xml.crypto.dsig.spec.C14NMethodParameterSpec;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+
+/**
+ * The streaming engine (<code>-Deuropack.processor.engine=stax</code>) and
+ * the DOM filters give the same document for the same chain, compared in
+ * exclusive canonical XML without the indentation.
+ *
+ * @author Michael Büchner <m.buechner@dnb.de>
+ */
+public class StreamingFilterEngineTest {
+
+    private final static String ENGINE = "europack.processor.engine";
+    private final static List<String> FILTERS = List.of(
+            "CropRdfFilter",
+            "HierarchieFilter",
+            "VgBildKunstFilter",
+            "DcDescriptionFilter",
+            "DctermsLanguageFilter",
+            "DctermsLinguisticSystemFilter",
+            "DctermsRightsFilter",
+            "DctermsSubjectFilter",
+            "DcTypeFilter",
+            "DdbAggregationEntityFilter",
+            "DdbAggregatorFilter",
+            "DdbHierarchyPositionFilter",
+            "DdbHierarchyTypeFilter",
+            "EdmDataProviderFilter",
+            "EdmHasMetFilter",
+            "EdmHasTypeFilter",
+            "ReformatterFilter");
+
+    static Stream<Arguments> chains() {
+        final List<Arguments> chains = new ArrayList<>();
+        for (String record : List.of("/edm/record.xml", "/edm/record-quote.xml")) {
+            chains.add(Arguments.of(record, FILTERS));
+            for (String f : FILTERS) {
+                chains.add(Arguments.of(record, List.of(f)));
+            }
+        }
+        return chains.stream();
+    }
+
+    @ParameterizedTest
+    @MethodSource("chains")
+    public void testSameAsDom(String record, List<String> filter) throws Exception {
+        final EuropackDoc dom = new EuropackDoc(record, read(record));
+        for (FilterInterface f : getChain(filter, "dom")) {
+            if (dom.getStatus() == EuropackDoc.Status.VALID) {
+                f.filter(dom);
+            }
+        }
+
+        final EuropackDoc stax = new EuropackDoc(record, read(record));
+        new StreamingFilterEngine().filter(stax, getChain(filter, "stax"));
+
+        assertEquals(dom.getStatus(), stax.getStatus());
+        if (dom.getStatus() == EuropackDoc.Status.VALID) {
+            assertEquals(canonicalize(dom.getData()), canonicalize(stax.getData()));
+        }
+    }
+
+    /**
+     * The registry fuses the XSL filters depending on the engine.
+     */
+    private static List<FilterInterface> getChain(List<String> filter, String engine) throws Exception {
+        final String old = System.setProperty(ENGINE, engine);
+        try {
+            return new FilterChainRegistry(filter).getChain();
+        } finally {
+            if (old == null) {
+                System.clearProperty(ENGINE);
+            } else {
+                System.setProperty(ENGINE, old);
+            }
+        }
+    }
+
+    private static byte[] read(String record) throws Exception {
+        try (InputStream is = StreamingFilterEngineTest.class.getResourceAsStream(record)) {
+            return is.readAllBytes();
+        }
+    }
+
+    /**
+     * @param data
+     * @return exclusive canonical XML of the document without whitespace-only
+     * text
+     * @throws Exception
+     */
+    public static String canonicalize(byte[] data) throws Exception {
+        final DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+        dbf.setNamespaceAware(true);
+        final Document doc = dbf.newDocumentBuilder().parse(new ByteArrayInputStream(data));
+        stripWhitespace(doc.getDocumentElement());
+
+        final ByteArrayOutputStream stripped = new ByteArrayOutputStream();
+        TransformerFactory.newInstance().newTransformer().transform(new DOMSource(doc), new StreamResult(stripped));
+
+        final CanonicalizationMethod c14n = XMLSignatureFactory.getInstance("DOM")
+                .newCanonicalizationMethod(CanonicalizationMethod.EXCLUSIVE, (C14NMethodParameterSpec) null);
+        final OctetStreamData canonical = (OctetStreamData) c14n.transform(new OctetStreamData(new ByteArrayInputStream(stripped.toByteArray())), null);
+        return new String(canonical.getOctetStream().readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    private static void stripWhitespace(Node node) {
+        Node n = node.getFirstChild();
+        while (n != null) {
+            final Node next = n.getNextSibling();
+            if (n.getNodeType() == Node.TEXT_NODE && n.getTextContent().isBlank()) {
+                node.removeChild(n);
+            } else if (n.getNodeType() == Node.ELEMENT_NODE) {
+                stripWhitespace(n);
+            }
+            n = next;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2019, 2025 Michael Büchner <m.buechner@dnb.de>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.labs.europack.source.ddbapi;
+
+import de.ddb.labs.europack.processor.EuropackDoc;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Contention on the {@link CacheManager}: every thread puts, gets and removes
+ * its own documents, as the downloader callbacks and processor threads do.
+ * <code>locked</code> takes the monitor of the CacheManager around each call,
+ * like the former <code>synchronized</code> methods did; the difference shows
+ * with many threads on many cores. Run with
+ * <code>mvn -Pbenchmark test-compile exec:exec -Djmh.args="CacheManagerBenchmark -t 16"</code>.
+ *
+ * @author Michael Büchner <m.buechner@dnb.de>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(Threads.MAX)
+public class CacheManagerBenchmark {
+
+    private final static byte[] XML = "<edm/>".getBytes(StandardCharsets.UTF_8);
+
+    @State(Scope.Benchmark)
+    public static class Shared {
+
+        final AtomicInteger threads = new AtomicInteger();
+        final CacheManager cm = CacheManager.getInstance();
+        final String cacheId = UUID.randomUUID().toString();
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            cm.addCache(cacheId);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            cm.removeCache(cacheId);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Ids {
+
+        private String prefix;
+        private int next;
+
+        @Setup(Level.Trial)
+        public void setUp(Shared shared) {
+            prefix = shared.threads.getAndIncrement() + "-";
+        }
+
+        String next() {
+            return prefix + (next++ & 1023);
+        }
+    }
+
+    @Benchmark
+    public EuropackDoc concurrent(Shared s, Ids ids) {
+        final String id = ids.next();
+        s.cm.put(s.cacheId, new EuropackDoc(id, XML));
+        final EuropackDoc ed = s.cm.get(s.cacheId, id);
+        s.cm.remove(s.cacheId, id);
+        return ed;
+    }
+
+    @Benchmark
+    public EuropackDoc locked(Shared s, Ids ids) {
+        final String id = ids.next();
+        synchronized (s.cm) {
+            s.cm.put(s.cacheId, new EuropackDoc(id, XML));
+        }
+        final EuropackDoc ed;
+        synchronized (s.cm) {
+            ed = s.cm.get(s.cacheId, id);
+        }
+        synchronized (s.cm) {
+            s.cm.remove(s.cacheId, id);
+        }
+        return ed;
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2019, 2025 Michael Büchner <m.buechner@dnb.de>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.labs.europack.source.ddbapi;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.TimeUnit;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The limit after windows of calls with given durations and errors. Calls
+ * wait for the limit in a dispatcher whose executor never runs them.
+ *
+ * @author Michael Büchner <m.buechner@dnb.de>
+ */
+public class ConcurrencyControllerTest {
+
+    private final static int WAITING = 1000;
+
+    @AfterEach
+    public void tearDown() {
+        System.clearProperty("europack.http.adaptive");
+        System.clearProperty("europack.http.minRequests");
+        System.clearProperty("europack.http.maxRequests");
+    }
+
+    @Test
+    public void testAdditiveIncrease() {
+        final Dispatcher dispatcher = dispatcher(WAITING);
+        final ConcurrencyController cc = new ConcurrencyController(dispatcher);
+        assertEquals(ConcurrencyController.INITIAL, cc.getLimit());
+        window(cc, 10, 0);
+        assertEquals(9, cc.getLimit());
+        window(cc, 10, 0);
+        assertEquals(10, cc.getLimit());
+        assertEquals(10, dispatcher.getMaxRequests());
+        assertEquals(10, dispatcher.getMaxRequestsPerHost());
+    }
+
+    @Test
+    public void testNoIncreaseWithoutWaitingCalls() {
+        final Dispatcher dispatcher = dispatcher(0);
+        final ConcurrencyController cc = new ConcurrencyController(dispatcher);
+        window(cc, 10, 0);
+        window(cc, 10, 0);
+        assertEquals(ConcurrencyController.INITIAL, cc.getLimit());
+    }
+
+    @Test
+    public void testMaximum() {
+        System.setProperty("europack.http.maxRequests", "10");
+        final ConcurrencyController cc = new ConcurrencyController(dispatcher(WAITING));
+        assertEquals(10, cc.getMax());
+        for (int i = 0; i < 5; ++i) {
+            window(cc, 10, 0);
+        }
+        assertEquals(10, cc.getLimit());
+    }
+
+    @Test
+    public void testHalvedOnErrors() {
+        final Dispatcher dispatcher = dispatcher(WAITING);
+        final ConcurrencyController cc = new ConcurrencyController(dispatcher);
+        // 1 of 20 is more than 2%
+        window(cc, 10, 1);
+        assertEquals(4, cc.getLimit());
+        assertEquals(4, dispatcher.getMaxRequests());
+        window(cc, 10, 1);
+        assertEquals(2, cc.getLimit());
+        // not below the minimum
+        window(cc, 10, 1);
+        assertEquals(2, cc.getLimit());
+    }
+
+    @Test
+    public void testCutOnLatency() {
+        final ConcurrencyController cc = new ConcurrencyController(dispatcher(WAITING));
+        // the first window sets the baseline
+        window(cc, 10, 0);
+        assertEquals(9, cc.getLimit());
+        window(cc, 100, 0);
+        assertEquals(6, cc.getLimit());
+        // the baseline has risen a little only
+        window(cc, 100, 0);
+        assertEquals(4, cc.getLimit());
+        window(cc, 10, 0);
+        assertEquals(5, cc.getLimit());
+    }
+
+    @Test
+    public void testDisabled() {
+        System.setProperty("europack.http.adaptive", "false");
+        final ConcurrencyController cc = new ConcurrencyController(dispatcher(WAITING));
+        window(cc, 10, 1);
+        window(cc, 10, 0);
+        assertEquals(ConcurrencyController.INITIAL, cc.getLimit());
+        assertEquals(ConcurrencyController.INITIAL, cc.getMax());
+    }
+
+    /**
+     * Records one window of calls at the current limit.
+     *
+     * @param cc
+     * @param durMs duration of each call
+     * @param errors number of failed calls
+     */
+    private static void window(ConcurrencyController cc, long durMs, int errors) {
+        final int calls = Math.max(20, cc.getLimit() * 2);
+        for (int i = 0; i < calls; ++i) {
+            if (i < errors) {
+                cc.recordStatus(503, durMs);
+            } else {
+                cc.recordStatus(200, durMs);
+            }
+        }
+    }
+
+    /**
+     * @param calls number of calls to enqueue
+     * @return a dispatcher at the initial limit with calls running forever
+     * and the rest of them waiting
+     */
+    private static Dispatcher dispatcher(int calls) {
+        final Dispatcher dispatcher = new Dispatcher(new AbstractExecutorService() {
+            @Override
+            public void execute(Runnable command) {
+            }
+
+            @Override
+            public void shutdown() {
+            }
+
+            @Override
+            public List<Runnable> shutdownNow() {
+                return List.of();
+            }
+
+            @Override
+            public boolean isShutdown() {
+                return false;
+            }
+
+            @Override
+            public boolean isTerminated() {
+                return false;
+            }
+
+            @Override
+            public boolean awaitTermination(long timeout, TimeUnit unit) {
+                return true;
+            }
+        });
+        dispatcher.setMaxRequests(ConcurrencyController.INITIAL);
+        dispatcher.setMaxRequestsPerHost(ConcurrencyController.INITIAL);
+        final OkHttpClient client = new OkHttpClient.Builder().dispatcher(dispatcher).build();
+        final Request request = new Request.Builder().url("http://127.0.0.1:9/items/X/edm").build();
+        for (int i = 0; i < calls; ++i) {
+            client.newCall(request).enqueue(new Callback() {
+                @Override
+                public void onFailure(Call call, IOException e) {
+                }
+
+                @Override
+                public void onResponse(Call call, Response response) {
+                }
+            });
+        }
+        return dispatcher;
+    }
+}
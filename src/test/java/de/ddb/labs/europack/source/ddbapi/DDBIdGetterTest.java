@@ -0,0 +1,145 @@
+/*
+ * Copyright 2019, 2025 Michael Büchner <m.buechner@dnb.de>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.labs.europack.source.ddbapi;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Splitting a search into shards by the first character of the ID, against a
+ * local server answering the counts.
+ *
+ * @author Michael Büchner <m.buechner@dnb.de>
+ */
+public class DDBIdGetterTest {
+
+    private final static Pattern SHARD = Pattern.compile(" AND id:(.)\\*$");
+    // results per shard; the whole search has the sum, unless total is set
+    private final Map<Character, Integer> shardResults = new ConcurrentHashMap<>();
+    private final Queue<String> queries = new ConcurrentLinkedQueue<>();
+    private volatile int total = -1;
+    private volatile char failing;
+    private HttpServer server;
+    private String api;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 64);
+        server.createContext("/search", exchange -> {
+            final String query = URLDecoder.decode(exchange.getRequestURI().getRawQuery().replaceFirst("^query=([^&]*).*$", "$1"), StandardCharsets.UTF_8);
+            queries.add(query);
+            final Matcher m = SHARD.matcher(query);
+            final int n;
+            if (!m.find()) {
+                n = total >= 0 ? total : shardResults.values().stream().mapToInt(Integer::intValue).sum();
+            } else if (m.group(1).charAt(0) == failing) {
+                exchange.sendResponseHeaders(500, -1);
+                exchange.close();
+                return;
+            } else {
+                n = shardResults.getOrDefault(m.group(1).charAt(0), 0);
+            }
+            final byte[] json = ("{\"numberOfResults\":" + n + ",\"results\":[],\"nextCursorMark\":\"\"}").getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, json.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(json);
+            }
+        });
+        server.start();
+        api = "http://127.0.0.1:" + server.getAddress().getPort();
+        System.setProperty("europack.search.shards", "4");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        System.clearProperty("europack.search.shards");
+        server.stop(0);
+    }
+
+    @Test
+    public void testSplit() throws Exception {
+        shardResults.put('A', 60000);
+        shardResults.put('Q', 39999);
+        shardResults.put('7', 1);
+        final DDBIdGetter getter = new DDBIdGetter(api, "Goethe");
+        final List<CursorReader.PageFetcher> fetchers = getter.split(getter.getNumberOfResults());
+        // shards without results are left out
+        assertEquals(3, fetchers.size());
+        assertEquals(1 + DdbId.DIGITS.length(), queries.size());
+
+        queries.clear();
+        for (CursorReader.PageFetcher f : fetchers) {
+            f.fetch(new DdbIdSpool(), null, 10);
+        }
+        assertEquals(List.of("(Goethe) AND id:A*", "(Goethe) AND id:Q*", "(Goethe) AND id:7*"), List.copyOf(queries));
+    }
+
+    @Test
+    public void testCountsDoNotAddUp() throws Exception {
+        shardResults.put('A', 60000);
+        shardResults.put('B', 40000);
+        total = 100001;
+        assertSingle(new DDBIdGetter(api, "Goethe"));
+    }
+
+    @Test
+    public void testCountFails() throws Exception {
+        shardResults.put('A', 60000);
+        shardResults.put('B', 40000);
+        failing = 'B';
+        assertSingle(new DDBIdGetter(api, "Goethe"));
+    }
+
+    @Test
+    public void testSmallSearch() throws Exception {
+        shardResults.put('A', 99999);
+        final DDBIdGetter getter = new DDBIdGetter(api, "Goethe");
+        assertSingle(getter);
+        // not counted per shard at all
+        assertTrue(queries.stream().noneMatch(q -> SHARD.matcher(q).find()));
+    }
+
+    @Test
+    public void testOneShard() throws Exception {
+        System.setProperty("europack.search.shards", "1");
+        shardResults.put('A', 200000);
+        assertSingle(new DDBIdGetter(api, "Goethe"));
+    }
+
+    private void assertSingle(DDBIdGetter getter) throws IOException {
+        final List<CursorReader.PageFetcher> fetchers = getter.split(getter.getNumberOfResults());
+        assertEquals(1, fetchers.size());
+        queries.clear();
+        fetchers.get(0).fetch(new DdbIdSpool(), null, 10);
+        assertEquals(List.of("Goethe"), List.copyOf(queries));
+    }
+}
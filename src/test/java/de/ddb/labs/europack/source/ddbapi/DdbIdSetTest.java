@@ -0,0 +1,113 @@
+/*
+ * Copyright 2019, 2025 Michael Büchner <m.buechner@dnb.de>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.labs.europack.source.ddbapi;
+
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * {@link DdbIdSet} and {@link DdbIdSpool}.
+ *
+ * @author Michael Büchner <m.buechner@dnb.de>
+ */
+public class DdbIdSetTest {
+
+    private final static DdbId ZERO = DdbId.of("A".repeat(DdbId.LENGTH));
+
+    @Test
+    public void testAddContains() {
+        final DdbIdSet set = new DdbIdSet(16);
+        // grows several times
+        for (int i = 0; i < 10000; ++i) {
+            assertTrue(set.add(DdbId.of(SearchResponseTest.id(i))), SearchResponseTest.id(i));
+        }
+        assertEquals(10000, set.size());
+        for (int i = 0; i < 10000; ++i) {
+            assertTrue(set.contains(DdbId.of(SearchResponseTest.id(i))));
+            assertFalse(set.add(DdbId.of(SearchResponseTest.id(i))));
+        }
+        assertFalse(set.contains(DdbId.of(SearchResponseTest.id(10000))));
+        assertEquals(10000, set.size());
+    }
+
+    @Test
+    public void testCollidingSlots() {
+        // IDs which all hash to the same slot of the 16 slots
+        final List<DdbId> same = new ArrayList<>();
+        for (int i = 0; same.size() < 11; ++i) {
+            final DdbId id = DdbId.of(SearchResponseTest.id(i));
+            if ((id.hashCode() & 15) == 3) {
+                same.add(id);
+            }
+        }
+        final DdbIdSet set = new DdbIdSet(10);
+        for (DdbId id : same.subList(0, 10)) {
+            assertTrue(set.add(id));
+        }
+        for (DdbId id : same.subList(0, 10)) {
+            assertTrue(set.contains(id), id.toString());
+            assertFalse(set.add(id));
+        }
+        // the probe for it passes all of them
+        assertFalse(set.contains(same.get(10)));
+        assertEquals(10, set.size());
+    }
+
+    @Test
+    public void testZero() {
+        // the all-zero ID is the marker of a free slot
+        final DdbIdSet set = new DdbIdSet();
+        assertFalse(set.contains(ZERO));
+        assertTrue(set.add(ZERO));
+        assertFalse(set.add(ZERO));
+        assertTrue(set.contains(ZERO));
+        assertEquals(1, set.size());
+        set.clear();
+        assertFalse(set.contains(ZERO));
+        assertTrue(set.isEmpty());
+    }
+
+    @Test
+    public void testSpool() {
+        final DdbIdSpool spool = new DdbIdSpool();
+        assertNull(spool.poll());
+        // more than two chunks, with the top bits set
+        final int n = 2500;
+        spool.add(DdbId.of("7".repeat(DdbId.LENGTH)));
+        spool.add(ZERO);
+        for (int i = 0; i < n; ++i) {
+            spool.add(DdbId.of(SearchResponseTest.id(i)));
+        }
+        assertEquals(n + 2, spool.size());
+        assertEquals("7".repeat(DdbId.LENGTH), spool.poll().toString());
+        assertEquals(ZERO, spool.poll());
+        for (int i = 0; i < n; ++i) {
+            assertEquals(SearchResponseTest.id(i), spool.poll().toString());
+        }
+        assertTrue(spool.isEmpty());
+        assertNull(spool.poll());
+
+        // reused after running empty
+        spool.add(ZERO);
+        assertEquals(ZERO, spool.poll());
+        assertTrue(spool.isEmpty());
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2019, 2025 Michael Büchner <m.buechner@dnb.de>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.labs.europack.source.ddbapi;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author Michael Büchner <m.buechner@dnb.de>
+ */
+public class DdbIdTest {
+
+    private final static String ZERO = "A".repeat(DdbId.LENGTH);
+
+    @Test
+    public void testRoundTrip() {
+        assertEquals(ZERO, DdbId.of(ZERO).toString());
+        assertEquals("7".repeat(DdbId.LENGTH), DdbId.of("7".repeat(DdbId.LENGTH)).toString());
+        for (int i = 0; i < 1000; ++i) {
+            final String id = SearchResponseTest.id(i);
+            assertEquals(id, DdbId.of(id).toString());
+        }
+    }
+
+    @Test
+    public void testEveryDigitAtEveryPosition() {
+        // 5 bits per character, so the digits of the characters 12 and 25
+        // are split between hi and mid and between mid and lo
+        final Set<DdbId> packed = new HashSet<>();
+        for (int i = 0; i < DdbId.LENGTH; ++i) {
+            for (char c : DdbId.DIGITS.toCharArray()) {
+                final String id = ZERO.substring(0, i) + c + ZERO.substring(i + 1);
+                final DdbId d = DdbId.of(id);
+                assertEquals(id, d.toString());
+                assertEquals(d, DdbId.of(id));
+                assertEquals(d.hashCode(), DdbId.of(id).hashCode());
+                packed.add(d);
+            }
+        }
+        // the IDs with an A are all the same ID
+        assertEquals(DdbId.LENGTH * (DdbId.DIGITS.length() - 1) + 1, packed.size());
+    }
+
+    @Test
+    public void testInvalid() {
+        assertFalse(DdbId.isValid(null));
+        assertFalse(DdbId.isValid(ZERO.substring(1)));
+        assertFalse(DdbId.isValid(ZERO + "A"));
+        assertFalse(DdbId.isValid(ZERO.substring(1) + "a"));
+        assertFalse(DdbId.isValid(ZERO.substring(1) + "1"));
+        assertFalse(DdbId.isValid(ZERO.substring(1) + "Ä"));
+        assertTrue(DdbId.isValid(ZERO));
+        assertThrows(IllegalArgumentException.class, () -> DdbId.of("not-a-ddb-id"));
+    }
+
+    @Test
+    public void testOrder() {
+        final List<DdbId> ids = new ArrayList<>();
+        for (char c : DdbId.DIGITS.toCharArray()) {
+            ids.add(DdbId.of(c + ZERO.substring(1)));
+        }
+        for (int i = 1; i < ids.size(); ++i) {
+            assertTrue(ids.get(i - 1).compareTo(ids.get(i)) < 0, ids.get(i).toString());
+        }
+        // unsigned: the top bit of hi is set from the first character on
+        assertTrue(DdbId.of("Q" + ZERO.substring(1)).compareTo(DdbId.of("P" + ZERO.substring(1))) > 0);
+        assertTrue(DdbId.of(ZERO.substring(1) + "7").compareTo(DdbId.of(ZERO.substring(1) + "B")) > 0);
+        assertEquals(0, DdbId.of(ZERO).compareTo(DdbId.of(ZERO)));
+        assertNotEquals(DdbId.of(ZERO), DdbId.of(ZERO.substring(1) + "B"));
+    }
+}
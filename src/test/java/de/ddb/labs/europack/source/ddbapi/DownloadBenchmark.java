@@ -0,0 +1,147 @@
+/*
+ * Copyright 2019, 2025 Michael Büchner <m.buechner@dnb.de>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.labs.europack.source.ddbapi;
+
+import com.sun.net.httpserver.HttpServer;
+import de.ddb.labs.europack.processor.ThreadMode;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Downloads on the dispatcher of {@link HttpClientProvider} with platform and
+ * with virtual threads ({@link ThreadMode}), against a local server answering
+ * after a fixed latency. Besides the time per download, each trial prints the
+ * peak number of platform threads of the JVM. Run with
+ * <code>mvn -Pbenchmark test-compile exec:exec -Djmh.args=DownloadBenchmark</code>.
+ *
+ * @author Michael Büchner <m.buechner@dnb.de>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DownloadBenchmark {
+
+    private final static int DOWNLOADS = 2000;
+    private final static long LATENCY_MS = 50;
+    private final static byte[] EDM = new byte[20_000];
+
+    @Param({"PLATFORM", "VIRTUAL"})
+    public ThreadMode mode;
+
+    // parallel requests allowed by the dispatcher
+    @Param({"64", "1024"})
+    public int concurrency;
+
+    private HttpServer server;
+    private OkHttpClient client;
+    private Request request;
+    private int peakThreads;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 4096);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/", exchange -> {
+            try {
+                Thread.sleep(LATENCY_MS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(200, EDM.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(EDM);
+            }
+        });
+        server.start();
+        request = new Request.Builder().url("http://127.0.0.1:" + server.getAddress().getPort() + "/items/X/edm").build();
+
+        final Dispatcher dispatcher = HttpClientProvider.newDispatcher(mode);
+        dispatcher.setMaxRequests(concurrency);
+        dispatcher.setMaxRequestsPerHost(concurrency);
+        client = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(concurrency, 1, TimeUnit.MINUTES))
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.println("Peak platform threads: " + peakThreads);
+        client.dispatcher().executorService().shutdown();
+        client.connectionPool().evictAll();
+        server.stop(0);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DOWNLOADS)
+    public void download() throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(DOWNLOADS);
+        final AtomicInteger failed = new AtomicInteger();
+        for (int i = 0; i < DOWNLOADS; ++i) {
+            client.newCall(request).enqueue(new Callback() {
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    failed.incrementAndGet();
+                    done.countDown();
+                }
+
+                @Override
+                public void onResponse(Call call, Response response) throws IOException {
+                    try (response) {
+                        response.body().bytes();
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            });
+        }
+        done.await();
+        if (failed.get() > 0) {
+            throw new IllegalStateException(failed.get() + " download(s) failed");
+        }
+        peakThreads = Math.max(peakThreads, ManagementFactory.getThreadMXBean().getPeakThreadCount());
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2019, 2025 Michael Büchner <m.buechner@dnb.de>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.labs.europack.source.ddbapi;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * The Cache-Control the cache sees for EDM, search and failed responses,
+ * against a local server which forbids caching everything.
+ *
+ * @author Michael Büchner <m.buechner@dnb.de>
+ */
+public class EdmCacheTest {
+
+    @TempDir
+    Path dir;
+    // path, Accept-Profile and If-None-Match of the requests the server got
+    private final Queue<String> requests = new ConcurrentLinkedQueue<>();
+    private HttpServer server;
+    private String url;
+    private EdmCache edmCache;
+    private OkHttpClient client;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 16);
+        server.createContext("/", exchange -> {
+            final String path = exchange.getRequestURI().getPath();
+            final String profile = exchange.getRequestHeaders().getFirst("Accept-Profile");
+            final String etag = exchange.getRequestHeaders().getFirst("If-None-Match");
+            requests.add(path + " " + profile + " " + etag);
+            exchange.getResponseHeaders().add("Cache-Control", path.startsWith("/search") ? "max-age=3600" : "no-store");
+            exchange.getResponseHeaders().add("Pragma", "no-cache");
+            if (path.contains("/ETAG/")) {
+                exchange.getResponseHeaders().add("ETag", "\"" + profile + "\"");
+                if (("\"" + profile + "\"").equals(etag)) {
+                    exchange.sendResponseHeaders(304, -1);
+                    exchange.close();
+                    return;
+                }
+            }
+            final byte[] body = ("<edm profile=\"" + profile + "\"/>").getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(path.contains("/FAIL/") ? 500 : 200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        });
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        System.clearProperty("europack.http.cache");
+        System.clearProperty("europack.http.cache.maxAge");
+        if (edmCache != null) {
+            edmCache.getCache().close();
+        }
+        server.stop(0);
+    }
+
+    private void cache(long maxAge) {
+        System.setProperty("europack.http.cache", dir.toString());
+        System.setProperty("europack.http.cache.maxAge", Long.toString(maxAge));
+        edmCache = EdmCache.fromProperties();
+        client = new OkHttpClient.Builder()
+                .cache(edmCache.getCache())
+                .addInterceptor(edmCache.keyInterceptor())
+                .addNetworkInterceptor(edmCache.networkInterceptor())
+                .build();
+    }
+
+    @Test
+    public void testDisabled() {
+        assertNull(EdmCache.fromProperties());
+    }
+
+    @Test
+    public void testRevalidated() throws IOException {
+        cache(0);
+        assertEquals("no-cache", get("/items/ETAG/edm", "p1"));
+        assertEquals("no-cache", get("/items/ETAG/edm", "p1"));
+        assertEquals(List.of("/items/ETAG/edm p1 null", "/items/ETAG/edm p1 \"p1\""), List.copyOf(requests));
+        assertEquals(1, edmCache.getCache().hitCount());
+    }
+
+    @Test
+    public void testNotStoredWithoutValidator() throws IOException {
+        cache(0);
+        assertEquals("no-store", get("/items/PLAIN/edm", "p1"));
+        assertEquals("no-store", get("/items/PLAIN/edm", "p1"));
+        assertEquals(2, requests.size());
+        assertEquals(0, edmCache.getCache().hitCount());
+    }
+
+    @Test
+    public void testMaxAge() throws IOException {
+        cache(600);
+        assertEquals("max-age=600", get("/items/PLAIN/edm", "p1"));
+        // from the cache without asking the server
+        assertNull(get("/items/PLAIN/edm", "p1"));
+        assertEquals(1, requests.size());
+    }
+
+    @Test
+    public void testProfileInKey() throws IOException {
+        cache(600);
+        get("/items/PLAIN/edm", "p1");
+        get("/items/PLAIN/edm", "p2");
+        get("/items/PLAIN/edm", "p1");
+        get("/items/PLAIN/edm", "p2");
+        assertEquals(List.of("/items/PLAIN/edm p1 null", "/items/PLAIN/edm p2 null"), List.copyOf(requests));
+    }
+
+    @Test
+    public void testOthersNotStored() throws IOException {
+        cache(600);
+        // the search allows caching, failed EDM requests are not stored
+        assertEquals("no-store", get("/search", null));
+        assertEquals("no-store", get("/search", null));
+        assertEquals("no-store", get("/items/FAIL/edm", "p1"));
+        assertEquals("no-store", get("/items/FAIL/edm", "p1"));
+        assertEquals(4, requests.size());
+    }
+
+    /**
+     * @param path
+     * @param profile Accept-Profile or null
+     * @return Cache-Control of the network response as rewritten, or null if
+     * the response came from the cache only
+     */
+    private String get(String path, String profile) throws IOException {
+        final Request.Builder request = new Request.Builder().url(url + path);
+        if (profile != null) {
+            request.header("Accept-Profile", profile);
+        }
+        try (Response response = client.newCall(request.build()).execute()) {
+            if (profile != null && response.isSuccessful()) {
+                assertEquals("<edm profile=\"" + profile + "\"/>", response.body().string());
+            } else {
+                response.body().string();
+            }
+            if (response.networkResponse() == null) {
+                return null;
+            }
+            assertNull(response.networkResponse().header("Pragma"));
+            return response.networkResponse().header("Cache-Control");
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2019, 2025 Michael Büchner <m.buechner@dnb.de>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.labs.europack.source.ddbapi;
+
+import de.ddb.labs.europack.source.ddbapi.ErrorRegistry.Category;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author Michael Büchner <m.buechner@dnb.de>
+ */
+public class ErrorRegistryTest {
+
+    @Test
+    public void testAddRemove() {
+        final ErrorRegistry r = new ErrorRegistry();
+        final String ddbId = SearchResponseTest.id(0);
+        r.add(ddbId, Category.DOWNLOAD);
+        r.add("not-a-ddb-id", Category.SAVE);
+        r.add(null, Category.SAVE);
+        r.add(" ", Category.SAVE);
+        assertEquals(2, r.size());
+
+        // a later error replaces the earlier one
+        r.add(ddbId, Category.FILTER);
+        assertEquals(2, r.size());
+        assertEquals(Category.FILTER, r.get(ddbId));
+        assertEquals(0, r.size(Category.DOWNLOAD));
+        assertEquals(1, r.size(Category.FILTER));
+        assertEquals("download: 0, parse: 0, filter: 1, save: 1", r.toString());
+
+        assertEquals(Category.FILTER, r.remove(ddbId));
+        assertNull(r.remove(ddbId));
+        assertEquals(Category.SAVE, r.remove("not-a-ddb-id"));
+        assertNull(r.remove(null));
+        assertTrue(r.isEmpty());
+        assertEquals(0, r.size(Category.SAVE));
+    }
+
+    @Test
+    public void testRetryRounds() {
+        final ErrorRegistry r = new ErrorRegistry();
+        final int n = 100;
+        for (int i = 0; i < n; ++i) {
+            r.add(SearchResponseTest.id(i), Category.values()[i % 4]);
+        }
+
+        // round 1: every other ID fails again and is registered meanwhile
+        final List<String> round1 = new ArrayList<>();
+        for (String id : r.retry()) {
+            round1.add(id);
+            r.remove(id);
+            if (round1.size() % 2 == 0) {
+                r.add(id, Category.DOWNLOAD);
+            }
+        }
+        assertEquals(n, round1.size());
+        assertEquals(n, new HashSet<>(round1).size());
+        assertEquals(n / 2, r.size());
+        assertEquals(n / 2, r.size(Category.DOWNLOAD));
+
+        // round 2: only those; IDs failing during the round are not in it
+        final Set<String> round2 = new HashSet<>();
+        for (String id : r.retry()) {
+            round2.add(id);
+            r.remove(id);
+            r.add(id, Category.SAVE);
+            r.add("new-" + id, Category.PARSE);
+        }
+        assertEquals(n / 2, round2.size());
+        for (int i = 1; i < n; i += 2) {
+            assertTrue(round2.contains(round1.get(i)));
+        }
+        assertEquals(n, r.size());
+
+        // round 3: all of them, the ones of round 2 and the new ones
+        int round3 = 0;
+        for (String id : r.retry()) {
+            assertFalse(r.remove(id) == null);
+            ++round3;
+        }
+        assertEquals(n, round3);
+        assertTrue(r.isEmpty());
+        assertFalse(r.retry().iterator().hasNext());
+    }
+
+    @Test
+    public void testRetrySkipsRemoved() {
+        final ErrorRegistry r = new ErrorRegistry();
+        r.add("a", Category.PARSE);
+        r.add("b", Category.PARSE);
+        final Iterable<String> retry = r.retry();
+        r.remove("a");
+        r.remove("b");
+        assertFalse(retry.iterator().hasNext());
+    }
+}
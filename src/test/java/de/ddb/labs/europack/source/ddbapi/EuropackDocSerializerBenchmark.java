@@ -0,0 +1,98 @@
+/*
+ * Copyright 2019, 2025 Michael Büchner <m.buechner@dnb.de>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.labs.europack.source.ddbapi;
+
+import de.ddb.labs.europack.processor.EuropackDoc;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Writing a document to the cache and reading it back:
+ * {@link EuropackDocSerializer} against the Java serialization Ehcache falls
+ * back to without it. <code>parsed</code> documents hold a DOM, the others
+ * the bytes as downloaded. Each trial prints the stored size of the document.
+ * Run with
+ * <code>mvn -Pbenchmark test-compile exec:exec -Djmh.args=EuropackDocSerializerBenchmark</code>.
+ *
+ * @author Michael Büchner <m.buechner@dnb.de>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx512m")
+@State(Scope.Benchmark)
+public class EuropackDocSerializerBenchmark {
+
+    @Param({"false", "true"})
+    public boolean parsed;
+
+    private final EuropackDocSerializer serializer = new EuropackDocSerializer();
+    private EuropackDoc ed;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        final byte[] xml;
+        try (InputStream is = EuropackDocSerializerBenchmark.class.getResourceAsStream("/edm/record.xml")) {
+            xml = is.readAllBytes();
+        }
+        ed = new EuropackDoc("ABCDEFGHIJKLMNOPQRSTUVWXYZ234567", xml);
+        if (parsed) {
+            ed.getDoc();
+        }
+        System.out.println("XML: " + xml.length + " byte(s), serializer: " + serializer.serialize(ed).remaining()
+                + " byte(s), Java serialization: " + java().length + " byte(s)");
+    }
+
+    @Benchmark
+    public EuropackDoc serializer() {
+        final ByteBuffer binary = serializer.serialize(ed);
+        return serializer.read(binary);
+    }
+
+    @Benchmark
+    public EuropackDoc javaSerialization() throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(java()))) {
+            return (EuropackDoc) in.readObject();
+        }
+    }
+
+    private byte[] java() throws IOException {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bos)) {
+            out.writeObject(ed);
+        }
+        return bos.toByteArray();
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2019, 2025 Michael Büchner <m.buechner@dnb.de>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.labs.europack.source.ddbapi;
+
+import de.ddb.labs.europack.processor.EuropackDoc;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.ehcache.spi.serialization.SerializerException;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author Michael Büchner <m.buechner@dnb.de>
+ */
+public class EuropackDocSerializerTest {
+
+    private static byte[] xml;
+    private final EuropackDocSerializer serializer = new EuropackDocSerializer();
+
+    @BeforeAll
+    public static void setUpClass() throws Exception {
+        try (InputStream is = EuropackDocSerializerTest.class.getResourceAsStream("/edm/record.xml")) {
+            xml = is.readAllBytes();
+        }
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        final EuropackDoc ed = new EuropackDoc("ABCDEFGHIJKLMNOPQRSTUVWXYZ234567", xml);
+        ed.setStatus(EuropackDoc.Status.INVALID_SAVE);
+        final ByteBuffer binary = serializer.serialize(ed);
+        assertTrue(binary.remaining() < xml.length);
+
+        final EuropackDoc read = serializer.read(binary.duplicate());
+        assertEquals(ed.getId(), read.getId());
+        assertEquals(EuropackDoc.Status.INVALID_SAVE, read.getStatus());
+        assertArrayEquals(xml, read.getData());
+        assertTrue(serializer.equals(ed, binary.duplicate()));
+    }
+
+    @Test
+    public void testRoundTripParsed() throws Exception {
+        final EuropackDoc ed = new EuropackDoc("PARSED", xml);
+        ed.getDoc();
+        final EuropackDoc read = serializer.read(serializer.serialize(ed));
+        assertEquals(EuropackDoc.Status.VALID, read.getStatus());
+        assertArrayEquals(ed.getData(), read.getData());
+        assertEquals("edm", read.getDoc().getDocumentElement().getLocalName());
+    }
+
+    @Test
+    public void testNoData() throws Exception {
+        final EuropackDoc ed = new EuropackDoc("NODATA");
+        ed.setStatus(EuropackDoc.Status.INVALID_DOWNLOAD);
+        final EuropackDoc read = serializer.read(serializer.serialize(ed));
+        assertEquals("NODATA", read.getId());
+        assertEquals(EuropackDoc.Status.INVALID_DOWNLOAD, read.getStatus());
+        assertNull(read.getData());
+    }
+
+    @Test
+    public void testNotEqual() throws Exception {
+        final ByteBuffer binary = serializer.serialize(new EuropackDoc("ID", xml));
+        final EuropackDoc other = new EuropackDoc("ID", xml);
+        other.setStatus(EuropackDoc.Status.INVALID_FILTER_FAILED);
+        assertTrue(!serializer.equals(other, binary.duplicate()));
+        assertTrue(!serializer.equals(new EuropackDoc("ID", Arrays.copyOf(xml, xml.length - 1)), binary.duplicate()));
+    }
+
+    @Test
+    public void testTruncated() throws Exception {
+        final ByteBuffer binary = serializer.serialize(new EuropackDoc("TRUNCATED", xml));
+        // within the header, the ID, the deflated XML and its checksum
+        for (int length : new int[]{0, 1, 4, 8, binary.remaining() / 2, binary.remaining() - 1}) {
+            final ByteBuffer truncated = binary.duplicate().limit(length);
+            assertThrows(SerializerException.class, () -> serializer.read(truncated), "length " + length);
+        }
+    }
+
+    @Test
+    public void testUnknownFormat() throws Exception {
+        final ByteBuffer binary = serializer.serialize(new EuropackDoc("VERSION", xml));
+        binary.put(0, (byte) 99);
+        assertThrows(SerializerException.class, () -> serializer.read(binary));
+
+        final ByteBuffer status = serializer.serialize(new EuropackDoc("STATUS", xml));
+        status.put(1, (byte) 99);
+        assertThrows(SerializerException.class, () -> serializer.read(status));
+    }
+}
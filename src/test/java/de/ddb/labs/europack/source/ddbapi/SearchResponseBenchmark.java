@@ -0,0 +1,83 @@
+/*
+ * Copyright 2019, 2025 Michael Büchner <m.buechner@dnb.de>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.labs.europack.source.ddbapi;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Reading a page of the search API: {@link SearchResponse} as a stream
+ * against the former tree of an ObjectMapper with
+ * <code>findValues("id")</code>. The page is the one of
+ * {@link SearchResponseTest#page(int, int)}. Run with
+ * <code>mvn -Pbenchmark test-compile exec:exec -Djmh.args=SearchResponseBenchmark</code>.
+ *
+ * @author Michael Büchner <m.buechner@dnb.de>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx512m")
+@State(Scope.Benchmark)
+public class SearchResponseBenchmark {
+
+    private final JsonFactory factory = new JsonFactory();
+    private final ObjectMapper mapper = new ObjectMapper();
+    private byte[] page;
+
+    @Setup
+    public void setUp() {
+        page = SearchResponseTest.page(1000, 123456);
+    }
+
+    @Benchmark
+    public String stream(Blackhole bh) throws IOException {
+        try (InputStream in = new ByteArrayInputStream(page)) {
+            final SearchResponse sr = SearchResponse.read(factory, in, id -> bh.consume(id.toString()));
+            bh.consume(sr.getNumberOfResults());
+            return sr.getNextCursorMark();
+        }
+    }
+
+    @Benchmark
+    public String tree(Blackhole bh) throws IOException {
+        try (InputStream in = new ByteArrayInputStream(page)) {
+            final JsonNode root = mapper.readTree(in);
+            for (JsonNode id : root.findValues("id")) {
+                bh.consume(id.asText());
+            }
+            bh.consume(root.get("numberOfResults").asInt(-1));
+            return root.get("nextCursorMark").asText("");
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2019, 2025 Michael Büchner <m.buechner@dnb.de>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.ddb.labs.europack.source.ddbapi;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author Michael Büchner <m.buechner@dnb.de>
+ */
+public class SearchResponseTest {
+
+    private final static String ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZ234567";
+    private final JsonFactory factory = new JsonFactory();
+
+    @Test
+    public void testPage() throws IOException {
+        final List<String> ids = new ArrayList<>();
+        final SearchResponse sr = read(page(1000, 123456), ids);
+        assertEquals(123456, sr.getNumberOfResults());
+        assertEquals("AoE/cursor", sr.getNextCursorMark());
+        assertEquals(1000, ids.size());
+        for (int i = 0; i < ids.size(); ++i) {
+            assertEquals(id(i), ids.get(i));
+        }
+    }
+
+    @Test
+    public void testCountOnly() throws IOException {
+        final List<String> ids = new ArrayList<>();
+        final SearchResponse sr = read("{\"numberOfResults\":42,\"results\":[],\"facets\":[]}".getBytes(StandardCharsets.UTF_8), ids);
+        assertEquals(42, sr.getNumberOfResults());
+        assertNull(sr.getNextCursorMark());
+        assertEquals(0, ids.size());
+    }
+
+    @Test
+    public void testNoObject() {
+        assertThrows(IOException.class, () -> read("[]".getBytes(StandardCharsets.UTF_8), new ArrayList<>()));
+    }
+
+    private SearchResponse read(byte[] json, List<String> ids) throws IOException {
+        return SearchResponse.read(factory, new ByteArrayInputStream(json), id -> ids.add(id.toString()));
+    }
+
+    /**
+     * @param i
+     * @return the i-th item ID of {@link #page(int, int)}
+     */
+    static String id(int i) {
+        final char[] id = new char[32];
+        long x = i * 0x9E3779B97F4A7C15L;
+        for (int j = 0; j < id.length; ++j) {
+            id[j] = ALPHABET.charAt((int) (x >>> 59));
+            x = x * 31 + j;
+        }
+        return new String(id);
+    }
+
+    /**
+     * A page shaped like a response of the search API, with <code>id</code>
+     * fields outside of <code>results[].docs[]</code>, too.
+     *
+     * @param rows number of documents
+     * @param numberOfResults
+     * @return the page as JSON
+     */
+    static byte[] page(int rows, int numberOfResults) {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("{\"numberOfResults\":").append(numberOfResults).append(",\"results\":[{\"name\":\"single\",\"docs\":[");
+        for (int i = 0; i < rows; ++i) {
+            sb.append(i == 0 ? "" : ",")
+                    .append("{\"id\":\"").append(id(i)).append('"')
+                    .append(",\"view\":[\"<div class=\\\"item\\\">Objekt ").append(i).append("</div>\"]")
+                    .append(",\"label\":\"Titel ").append(i).append('"')
+                    .append(",\"latitude\":\"\",\"longitude\":\"\",\"category\":\"Kultur\",\"media\":\"image\"")
+                    .append(",\"type\":\"mediatype_002\",\"thumbnail\":\"https://example.org/thumb/").append(i).append(".jpg\"")
+                    .append(",\"provider\":{\"id\":\"PROVIDER").append(i % 7).append("\",\"label\":\"Archiv\"}}");
+        }
+        sb.append("],\"numberOfDocs\":").append(rows).append("}]");
+        sb.append(",\"facets\":[{\"field\":\"provider_fct\",\"numberOfFacets\":2,\"facetValues\":[{\"value\":\"Archiv\",\"count\":3}]}]");
+        sb.append(",\"entities\":[{\"id\":\"https://d-nb.info/gnd/118540238\",\"label\":\"Goethe\"}]");
+        sb.append(",\"fulltexts\":[],\"correctedQuery\":null,\"highlightedTerms\":[],\"randomSeed\":\"\"");
+        sb.append(",\"nextCursorMark\":\"AoE/cursor\"}");
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}